@@ -3,9 +3,11 @@ package ma.enset.inscriptionservice;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableFeignClients  // ← AJOUTE CETTE LIGNE
+@EnableScheduling
 public class InscriptionServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(InscriptionServiceApplication.class, args);
@@ -4,7 +4,10 @@ import ma.enset.inscriptionservice.dto.UserDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.Collection;
 import java.util.List;
 
 @FeignClient(name = "USER-SERVICE", fallback = UserServiceClientFallback.class)
@@ -18,4 +21,10 @@ public interface UserServiceClient {
      */
     @GetMapping("/api/users/directeur/{directeurId}/doctorants")
     List<UserDTO> getDoctorantsByDirecteur(@PathVariable("directeurId") Long directeurId);
-}
\ No newline at end of file
+
+    /**
+     * Récupérer plusieurs utilisateurs en un appel (ids inconnus absents de la réponse)
+     */
+    @PostMapping("/api/users/dto/batch")
+    List<UserDTO> getUsersByIds(@RequestBody Collection<Long> ids);
+}
@@ -3,12 +3,16 @@ package ma.enset.inscriptionservice.clients;
 import ma.enset.inscriptionservice.dto.UserDTO;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
 @Component
 public class UserServiceClientFallback implements UserServiceClient {
 
+    // Marqueur des réponses de secours (jamais mises en cache)
+    public static final String UNAVAILABLE_EMAIL = "inconnu@example.com";
+
     @Override
     public UserDTO getUserById(Long id) {
         // Retourne un UserDTO vide en cas d'erreur
@@ -16,7 +20,7 @@ public class UserServiceClientFallback implements UserServiceClient {
                 .id(id)
                 .nom("Utilisateur")
                 .prenom("Inconnu")
-                .email("inconnu@example.com")
+                .email(UNAVAILABLE_EMAIL)
                 .build();
     }
 
@@ -25,4 +29,9 @@ public class UserServiceClientFallback implements UserServiceClient {
         // Retourne une liste vide en cas d'erreur
         return Collections.emptyList();
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<UserDTO> getUsersByIds(Collection<Long> ids) {
+        return Collections.emptyList();
+    }
+}
@@ -9,6 +9,7 @@ import ma.enset.inscriptionservice.dto.EligibiliteReinscriptionDTO;
 import ma.enset.inscriptionservice.entities.Derogation;
 import ma.enset.inscriptionservice.enums.StatutDerogation;
 import ma.enset.inscriptionservice.services.DerogationService;
+import ma.enset.inscriptionservice.services.DerogationStatistiquesService;
 import ma.enset.inscriptionservice.services.DoctoratDureeService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -27,6 +28,7 @@ public class DerogationController {
 
     private final DerogationService derogationService;
     private final DoctoratDureeService doctoratDureeService;
+    private final DerogationStatistiquesService derogationStatistiquesService;
 
     // ==================== ENDPOINTS DOCTORANT ====================
 
@@ -41,6 +43,19 @@ public class DerogationController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Éligibilité groupée pour une campagne de réinscription (liste vide ou absente : tous les doctorants)
+     * POST /api/derogations/eligibilite/lot
+     * [12, 15, 27]
+     */
+    @PostMapping("/eligibilite/lot")
+    public ResponseEntity<List<EligibiliteReinscriptionDTO>> verifierEligibiliteLot(
+            @RequestBody(required = false) List<Long> doctorantIds) {
+        log.info("📋 Vérification éligibilité réinscription groupée - {} doctorants demandés",
+                doctorantIds == null ? "tous" : doctorantIds.size());
+        return ResponseEntity.ok(doctoratDureeService.verifierEligibiliteReinscription(doctorantIds).toList());
+    }
+
     /**
      * Obtenir l'année de doctorat actuelle
      * GET /api/derogations/annee/{doctorantId}
@@ -282,18 +297,11 @@ public class DerogationController {
     // ==================== ENDPOINT STATISTIQUES ====================
 
     /**
-     * Statistiques des dérogations
+     * Statistiques des dérogations (par statut, type et année ; instantané en cache court)
      * GET /api/derogations/stats
      */
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getStatistiques() {
-        Map<String, Object> stats = new HashMap<>();
-
-        stats.put("enAttenteDirecteur", derogationService.getDerogationsByStatut(StatutDerogation.EN_ATTENTE_DIRECTEUR).size());
-        stats.put("enAttenteAdmin", derogationService.getDerogationsByStatut(StatutDerogation.EN_ATTENTE_ADMIN).size());
-        stats.put("approuvees", derogationService.getDerogationsByStatut(StatutDerogation.APPROUVEE).size());
-        stats.put("refusees", derogationService.getDerogationsByStatut(StatutDerogation.REFUSEE).size());
-
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok(derogationStatistiquesService.getStatistiques());
     }
-}
\ No newline at end of file
+}
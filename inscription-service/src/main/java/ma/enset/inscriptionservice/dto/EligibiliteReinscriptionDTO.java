@@ -15,6 +15,11 @@ import ma.enset.inscriptionservice.enums.TypeDerogation;
 @Builder
 public class EligibiliteReinscriptionDTO {
 
+    /**
+     * Doctorant concerné (utile dans les réponses groupées)
+     */
+    private Long doctorantId;
+
     /**
      * Indique si le doctorant est éligible à la réinscription
      */
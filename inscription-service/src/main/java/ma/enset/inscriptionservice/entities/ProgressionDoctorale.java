@@ -0,0 +1,40 @@
+package ma.enset.inscriptionservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Avancement du doctorat, une ligne par doctorant : date de première inscription et année en cours.
+ * Maintenu à la création et à la validation des inscriptions, basculé chaque nuit.
+ */
+@Entity
+@Table(name = "progressions_doctorales")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProgressionDoctorale {
+
+    @Id
+    @Column(name = "doctorant_id")
+    private Long doctorantId;
+
+    @Column(name = "date_premiere_inscription", nullable = false)
+    private LocalDate datePremiereInscription;
+
+    @Column(name = "annee_actuelle", nullable = false)
+    private Integer anneeActuelle;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -4,10 +4,13 @@ import ma.enset.inscriptionservice.entities.Derogation;
 import ma.enset.inscriptionservice.enums.StatutDerogation;
 import ma.enset.inscriptionservice.enums.TypeDerogation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -29,6 +32,24 @@ public interface DerogationRepository extends JpaRepository<Derogation, Long> {
     @Query("SELECT d FROM Derogation d WHERE d.directeurId = :directeurId ORDER BY d.dateDemande DESC")
     List<Derogation> findAllByDirecteurId(@Param("directeurId") Long directeurId);
 
+    /**
+     * Dérogations sans directeur_id d'un lot de doctorants (une seule requête IN)
+     */
+    @Query("SELECT d FROM Derogation d WHERE d.doctorantId IN :doctorantIds " +
+            "AND d.directeurId IS NULL AND d.statut IN :statuts ORDER BY d.dateDemande DESC")
+    List<Derogation> findSansDirecteurByDoctorantIdIn(@Param("doctorantIds") Collection<Long> doctorantIds,
+                                                      @Param("statuts") Collection<StatutDerogation> statuts);
+
+    /**
+     * Renseigne directeur_id en un seul UPDATE ; les lignes déjà affectées entre-temps ne sont pas touchées
+     */
+    @Modifying
+    @Query("UPDATE Derogation d SET d.directeurId = :directeurId, d.updatedAt = :maintenant " +
+            "WHERE d.id IN :ids AND d.directeurId IS NULL")
+    int affecterDirecteur(@Param("directeurId") Long directeurId,
+                          @Param("ids") Collection<Long> ids,
+                          @Param("maintenant") LocalDateTime maintenant);
+
     // ========== ADMIN ==========
 
     List<Derogation> findByStatutOrderByDateDemandeAsc(StatutDerogation statut);
@@ -37,6 +58,15 @@ public interface DerogationRepository extends JpaRepository<Derogation, Long> {
 
     List<Derogation> findByStatutIn(List<StatutDerogation> statuts);
 
+    // ========== STATISTIQUES ==========
+
+    /**
+     * Comptage agrégé sans charger de ligne : [statut, typeDerogation, année de demande, nombre]
+     */
+    @Query("SELECT d.statut, d.typeDerogation, YEAR(d.dateDemande), COUNT(d) FROM Derogation d " +
+            "GROUP BY d.statut, d.typeDerogation, YEAR(d.dateDemande)")
+    List<Object[]> compterParStatutTypeEtAnnee();
+
     // ========== VÉRIFICATIONS ==========
 
     @Query("SELECT CASE WHEN COUNT(d) > 0 THEN true ELSE false END FROM Derogation d " +
@@ -56,11 +86,26 @@ public interface DerogationRepository extends JpaRepository<Derogation, Long> {
                                           @Param("type") TypeDerogation type,
                                           @Param("statuts") List<StatutDerogation> statuts);
 
+    /**
+     * Version ensembliste de hasDerogationValideByStatut : couples [doctorantId, anneeDemandee]
+     * des dérogations valides d'un lot de doctorants
+     */
+    @Query("SELECT DISTINCT d.doctorantId, d.anneeDemandee FROM Derogation d " +
+            "WHERE d.doctorantId IN :doctorantIds " +
+            "AND d.statut = :statut " +
+            "AND (d.dateExpiration IS NULL OR d.dateExpiration >= CURRENT_DATE)")
+    List<Object[]> findAnneesDerogationValideByStatut(@Param("doctorantIds") Collection<Long> doctorantIds,
+                                                      @Param("statut") StatutDerogation statut);
+
     // Méthodes simplifiées qui utilisent les méthodes ci-dessus
     default boolean hasDerogationValide(Long doctorantId, int annee) {
         return hasDerogationValideByStatut(doctorantId, annee, StatutDerogation.APPROUVEE);
     }
 
+    default List<Object[]> findAnneesDerogationValide(Collection<Long> doctorantIds) {
+        return findAnneesDerogationValideByStatut(doctorantIds, StatutDerogation.APPROUVEE);
+    }
+
     default boolean hasDerogationEnCours(Long doctorantId, TypeDerogation type) {
         return hasDerogationEnCoursByStatuts(doctorantId, type,
                 List.of(StatutDerogation.EN_ATTENTE_DIRECTEUR, StatutDerogation.EN_ATTENTE_ADMIN, StatutDerogation.EN_ATTENTE));
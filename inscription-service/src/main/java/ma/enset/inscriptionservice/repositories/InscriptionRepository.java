@@ -4,8 +4,11 @@ import ma.enset.inscriptionservice.entities.Inscription;
 import ma.enset.inscriptionservice.enums.StatutInscription;
 import ma.enset.inscriptionservice.enums.TypeInscription;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -42,4 +45,13 @@ public interface InscriptionRepository extends JpaRepository<Inscription, Long>
 
     // Pour directeur - toutes les inscriptions en attente de validation
     List<Inscription> findByDirecteurIdAndStatut(Long directeurId, StatutInscription statut);
-}
\ No newline at end of file
+
+    // Première inscription par doctorant, agrégée en base : [doctorantId, MIN(datePremiereInscription), MIN(createdAt)]
+    @Query("SELECT i.doctorantId, MIN(i.datePremiereInscription), MIN(i.createdAt) " +
+            "FROM Inscription i GROUP BY i.doctorantId")
+    List<Object[]> findPremieresInscriptions();
+
+    @Query("SELECT i.doctorantId, MIN(i.datePremiereInscription), MIN(i.createdAt) " +
+            "FROM Inscription i WHERE i.doctorantId IN :doctorantIds GROUP BY i.doctorantId")
+    List<Object[]> findPremieresInscriptionsByDoctorantIdIn(@Param("doctorantIds") Collection<Long> doctorantIds);
+}
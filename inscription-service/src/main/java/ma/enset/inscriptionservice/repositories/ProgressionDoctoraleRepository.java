@@ -0,0 +1,9 @@
+package ma.enset.inscriptionservice.repositories;
+
+import ma.enset.inscriptionservice.entities.ProgressionDoctorale;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProgressionDoctoraleRepository extends JpaRepository<ProgressionDoctorale, Long> {
+}
@@ -0,0 +1,68 @@
+package ma.enset.inscriptionservice.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.inscriptionservice.repositories.DerogationRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static ma.enset.inscriptionservice.services.Transactions.apresTransaction;
+
+/**
+ * Rattrapage de derogations.directeur_id pour les anciennes demandes créées sans directeur.
+ *
+ * La lecture des dérogations d'un directeur ne fait que signaler les lignes à corriger ;
+ * l'écriture (un UPDATE groupé) part après la fin de la transaction de lecture, sur un thread à part.
+ */
+@Service
+@Slf4j
+public class AffectationDirecteurService {
+
+    private final DerogationRepository derogationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AffectationDirecteurService(DerogationRepository derogationRepository,
+                                       PlatformTransactionManager transactionManager) {
+        this.derogationRepository = derogationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Planifie l'affectation, exécutée après la transaction en cours (ou tout de suite s'il n'y en a pas)
+     */
+    public void planifier(Long directeurId, Collection<Long> derogationIds) {
+        if (derogationIds.isEmpty()) return;
+        List<Long> ids = List.copyOf(derogationIds);
+        // Lancée quelle que soit l'issue de la transaction de lecture
+        apresTransaction(committed -> executor.submit(() -> {
+            try {
+                affecter(directeurId, ids);
+            } catch (Exception e) {
+                log.warn("⚠️ Affectation du directeur {} impossible: {}", directeurId, e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * UPDATE groupé ; retourne le nombre de dérogations effectivement modifiées
+     */
+    public int affecter(Long directeurId, Collection<Long> derogationIds) {
+        Integer modifiees = transactionTemplate.execute(status ->
+                derogationRepository.affecterDirecteur(directeurId, derogationIds, LocalDateTime.now()));
+        log.info("🔗 directeur_id={} renseigné sur {} dérogation(s)", directeurId, modifiees);
+        return modifiees != null ? modifiees : 0;
+    }
+
+    @PreDestroy
+    void fermer() {
+        executor.shutdown();
+    }
+}
@@ -14,9 +14,14 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -26,6 +31,8 @@ public class DerogationServiceImpl implements DerogationService {
 
     private final DerogationRepository derogationRepository;
     private final UserServiceClient userServiceClient;
+    private final AffectationDirecteurService affectationDirecteurService;
+    private final UserCacheService userCacheService;
 
     // ========================================================
     // DOCTORANT
@@ -86,7 +93,7 @@ public class DerogationServiceImpl implements DerogationService {
     @Override
     public List<Derogation> getDerogationsByDoctorant(Long doctorantId) {
         List<Derogation> derogations = derogationRepository.findByDoctorantIdOrderByDateDemandeDesc(doctorantId);
-        derogations.forEach(this::enrichirDerogation);
+        enrichirDerogations(derogations);
         return derogations;
     }
 
@@ -94,59 +101,55 @@ public class DerogationServiceImpl implements DerogationService {
     // DIRECTEUR
     // ========================================================
 
+    /**
+     * Dérogations d'un directeur : affectations directes + demandes de ses doctorants encore sans directeur_id.
+     * Deux requêtes quel que soit le nombre de doctorants ; la lecture n'écrit rien, le directeur_id
+     * manquant est renseigné en mémoire puis rattrapé en base par un UPDATE groupé après la transaction.
+     */
     @Override
+    @Transactional(readOnly = true)
     public List<Derogation> getDerogationsEnAttenteDirecteur(Long directeurId) {
         log.info("📋 Récupération dérogations pour directeur: {}", directeurId);
 
-        List<Derogation> toutesDerogations = new ArrayList<>();
+        Map<Long, Derogation> toutesDerogations = new LinkedHashMap<>();
 
         // 1. Dérogations où directeur_id = directeurId (assignation directe)
         List<Derogation> derogationsDirectes = derogationRepository.findByDirecteurIdOrderByDateDemandeDesc(directeurId);
         log.info("   - {} dérogations avec directeur_id = {}", derogationsDirectes.size(), directeurId);
-        toutesDerogations.addAll(derogationsDirectes);
+        derogationsDirectes.forEach(d -> toutesDerogations.put(d.getId(), d));
 
-        // 2. Chercher les dérogations des doctorants dont le directeur_id dans users = directeurId
-        //    mais qui n'ont pas de directeur_id dans la table derogations
+        // 2. Dérogations en attente des doctorants du directeur (selon user-service) sans directeur_id
         try {
             List<UserDTO> doctorants = userServiceClient.getDoctorantsByDirecteur(directeurId);
             log.info("   - {} doctorants trouvés pour ce directeur", doctorants != null ? doctorants.size() : 0);
 
             if (doctorants != null && !doctorants.isEmpty()) {
-                for (UserDTO doctorant : doctorants) {
-                    List<Derogation> derogationsDoctorant = derogationRepository
-                            .findByDoctorantIdOrderByDateDemandeDesc(doctorant.getId())
-                            .stream()
-                            .filter(d -> d.getDirecteurId() == null)
-                            .filter(d -> d.getStatut() == StatutDerogation.EN_ATTENTE_DIRECTEUR
-                                    || d.getStatut() == StatutDerogation.EN_ATTENTE)
-                            .toList();
-
-                    // Mettre à jour le directeur_id pour ces dérogations
-                    for (Derogation d : derogationsDoctorant) {
-                        d.setDirecteurId(directeurId);
-                        derogationRepository.save(d);
-                        log.info("   - Mise à jour directeur_id={} pour dérogation {} du doctorant {}",
-                                directeurId, d.getId(), doctorant.getId());
-                    }
-
-                    toutesDerogations.addAll(derogationsDoctorant);
+                List<Long> doctorantIds = doctorants.stream().map(UserDTO::getId).distinct().toList();
+                List<Derogation> sansDirecteur = derogationRepository.findSansDirecteurByDoctorantIdIn(doctorantIds,
+                        List.of(StatutDerogation.EN_ATTENTE_DIRECTEUR, StatutDerogation.EN_ATTENTE));
+
+                // Transaction en lecture seule : la modification n'est pas flushée, le rattrapage est planifié
+                List<Long> aAffecter = new ArrayList<>();
+                for (Derogation d : sansDirecteur) {
+                    d.setDirecteurId(directeurId);
+                    aAffecter.add(d.getId());
+                    toutesDerogations.putIfAbsent(d.getId(), d);
                 }
+                affectationDirecteurService.planifier(directeurId, aAffecter);
             }
         } catch (Exception e) {
             log.warn("⚠️ Erreur lors de la récupération des doctorants: {}", e.getMessage());
         }
 
-        // 3. Dédupliquer par ID et enrichir
-        toutesDerogations = toutesDerogations.stream()
-                .collect(Collectors.toMap(Derogation::getId, d -> d, (d1, d2) -> d1))
-                .values()
-                .stream()
+        // 3. Tri par date de demande (plus récentes d'abord) et enrichissement
+        List<Derogation> resultat = toutesDerogations.values().stream()
+                .sorted(Comparator.comparing(Derogation::getDateDemande, Comparator.nullsLast(Comparator.reverseOrder())))
                 .toList();
 
-        toutesDerogations.forEach(this::enrichirDerogation);
-        log.info("✅ {} dérogations totales pour directeur {}", toutesDerogations.size(), directeurId);
+        enrichirDerogations(resultat);
+        log.info("✅ {} dérogations totales pour directeur {}", resultat.size(), directeurId);
 
-        return toutesDerogations;
+        return resultat;
     }
 
     @Override
@@ -220,7 +223,7 @@ public class DerogationServiceImpl implements DerogationService {
     public List<Derogation> getDerogationsEnAttenteAdmin() {
         log.info("📋 Récupération dérogations en attente admin");
         List<Derogation> derogations = derogationRepository.findByStatutOrderByDateDemandeAsc(StatutDerogation.EN_ATTENTE_ADMIN);
-        derogations.forEach(this::enrichirDerogation);
+        enrichirDerogations(derogations);
         return derogations;
     }
 
@@ -285,7 +288,7 @@ public class DerogationServiceImpl implements DerogationService {
         List<Derogation> derogations = derogationRepository.findByStatutIn(
                 List.of(StatutDerogation.EN_ATTENTE_DIRECTEUR, StatutDerogation.EN_ATTENTE_ADMIN, StatutDerogation.EN_ATTENTE)
         );
-        derogations.forEach(this::enrichirDerogation);
+        enrichirDerogations(derogations);
         return derogations;
     }
 
@@ -297,14 +300,14 @@ public class DerogationServiceImpl implements DerogationService {
     @Override
     public List<Derogation> getDerogationsByStatut(StatutDerogation statut) {
         List<Derogation> derogations = derogationRepository.findByStatut(statut);
-        derogations.forEach(this::enrichirDerogation);
+        enrichirDerogations(derogations);
         return derogations;
     }
 
     @Override
     public List<Derogation> getAllDerogations() {
         List<Derogation> derogations = derogationRepository.findAll();
-        derogations.forEach(this::enrichirDerogation);
+        enrichirDerogations(derogations);
         return derogations;
     }
 
@@ -313,31 +316,50 @@ public class DerogationServiceImpl implements DerogationService {
     // ========================================================
 
     private Derogation enrichirDerogation(Derogation derogation) {
-        try {
-            // Infos doctorant
-            UserDTO doctorant = userServiceClient.getUserById(derogation.getDoctorantId());
-            if (doctorant != null) {
-                derogation.setDoctorantNom(doctorant.getNom());
-                derogation.setDoctorantPrenom(doctorant.getPrenom());
-                derogation.setDoctorantEmail(doctorant.getEmail());
-
-                // Si pas de directeur_id, le récupérer du doctorant
-                if (derogation.getDirecteurId() == null && doctorant.getDirecteurId() != null) {
-                    derogation.setDirecteurId(doctorant.getDirecteurId());
-                }
+        enrichirDerogations(List.of(derogation));
+        return derogation;
+    }
+
+    /**
+     * Enrichissement groupé : tous les ids distincts (doctorants et directeurs) sont résolus en un appel
+     * au user-service via le cache local ; un second appel au plus pour les directeurs déduits
+     * du profil des doctorants.
+     */
+    private void enrichirDerogations(List<Derogation> derogations) {
+        if (derogations.isEmpty()) return;
+
+        Set<Long> ids = new HashSet<>();
+        for (Derogation derogation : derogations) {
+            ids.add(derogation.getDoctorantId());
+            ids.add(derogation.getDirecteurId());
+        }
+        Map<Long, UserDTO> users = userCacheService.getUsers(ids);
+
+        // Infos doctorant ; si pas de directeur_id, le récupérer du doctorant
+        Set<Long> directeursManquants = new HashSet<>();
+        for (Derogation derogation : derogations) {
+            UserDTO doctorant = users.get(derogation.getDoctorantId());
+            if (doctorant == null) continue;
+            derogation.setDoctorantNom(doctorant.getNom());
+            derogation.setDoctorantPrenom(doctorant.getPrenom());
+            derogation.setDoctorantEmail(doctorant.getEmail());
+            if (derogation.getDirecteurId() == null && doctorant.getDirecteurId() != null) {
+                derogation.setDirecteurId(doctorant.getDirecteurId());
+                if (!users.containsKey(doctorant.getDirecteurId())) directeursManquants.add(doctorant.getDirecteurId());
             }
+        }
+        if (!directeursManquants.isEmpty()) {
+            users = new HashMap<>(users);
+            users.putAll(userCacheService.getUsers(directeursManquants));
+        }
 
-            // Infos directeur
-            if (derogation.getDirecteurId() != null) {
-                UserDTO directeur = userServiceClient.getUserById(derogation.getDirecteurId());
-                if (directeur != null) {
-                    derogation.setDirecteurNom(directeur.getNom());
-                    derogation.setDirecteurPrenom(directeur.getPrenom());
-                }
+        // Infos directeur
+        for (Derogation derogation : derogations) {
+            UserDTO directeur = derogation.getDirecteurId() != null ? users.get(derogation.getDirecteurId()) : null;
+            if (directeur != null) {
+                derogation.setDirecteurNom(directeur.getNom());
+                derogation.setDirecteurPrenom(directeur.getPrenom());
             }
-        } catch (Exception e) {
-            log.warn("Impossible d'enrichir la dérogation {}: {}", derogation.getId(), e.getMessage());
         }
-        return derogation;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package ma.enset.inscriptionservice.services;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.inscriptionservice.enums.StatutDerogation;
+import ma.enset.inscriptionservice.enums.TypeDerogation;
+import ma.enset.inscriptionservice.repositories.DerogationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistiques des dérogations, calculées par une seule requête GROUP BY (statut, type, année)
+ * et servies depuis un instantané en mémoire renouvelé au plus toutes les {@code ttl}.
+ * Aucun chargement d'entité, aucun appel au user-service.
+ */
+@Service
+@Slf4j
+public class DerogationStatistiquesService {
+
+    private final DerogationRepository derogationRepository;
+    private final Duration ttl;
+
+    private volatile Instantane instantane;
+
+    private record Instantane(Map<String, Object> stats, long calculeA) {
+    }
+
+    public DerogationStatistiquesService(DerogationRepository derogationRepository,
+                                         @Value("${derogation-stats.ttl:30s}") Duration ttl) {
+        this.derogationRepository = derogationRepository;
+        this.ttl = ttl;
+    }
+
+    public Map<String, Object> getStatistiques() {
+        Instantane courant = instantane;
+        if (courant == null || System.nanoTime() - courant.calculeA() > ttl.toNanos()) {
+            courant = recalculer();
+        }
+        return courant.stats();
+    }
+
+    /**
+     * Un seul recalcul à la fois ; les appels concurrents réutilisent le résultat frais
+     */
+    private synchronized Instantane recalculer() {
+        Instantane courant = instantane;
+        if (courant != null && System.nanoTime() - courant.calculeA() <= ttl.toNanos()) {
+            return courant;
+        }
+
+        Map<StatutDerogation, Long> parStatut = new EnumMap<>(StatutDerogation.class);
+        Map<TypeDerogation, Long> parType = new EnumMap<>(TypeDerogation.class);
+        Map<Integer, Long> parAnnee = new TreeMap<>();
+        Map<Integer, Map<TypeDerogation, Long>> parAnneeEtType = new TreeMap<>();
+        long total = 0;
+
+        for (Object[] ligne : derogationRepository.compterParStatutTypeEtAnnee()) {
+            StatutDerogation statut = (StatutDerogation) ligne[0];
+            TypeDerogation type = (TypeDerogation) ligne[1];
+            Integer annee = ligne[2] != null ? ((Number) ligne[2]).intValue() : null;
+            long nombre = ((Number) ligne[3]).longValue();
+
+            total += nombre;
+            parStatut.merge(statut, nombre, Long::sum);
+            parType.merge(type, nombre, Long::sum);
+            if (annee != null) {
+                parAnnee.merge(annee, nombre, Long::sum);
+                parAnneeEtType.computeIfAbsent(annee, k -> new EnumMap<>(TypeDerogation.class))
+                        .merge(type, nombre, Long::sum);
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        // Clés historiques de GET /api/derogations/stats
+        stats.put("enAttenteDirecteur", parStatut.getOrDefault(StatutDerogation.EN_ATTENTE_DIRECTEUR, 0L));
+        stats.put("enAttenteAdmin", parStatut.getOrDefault(StatutDerogation.EN_ATTENTE_ADMIN, 0L));
+        stats.put("approuvees", parStatut.getOrDefault(StatutDerogation.APPROUVEE, 0L));
+        stats.put("refusees", parStatut.getOrDefault(StatutDerogation.REFUSEE, 0L));
+        stats.put("total", total);
+        stats.put("parStatut", parStatut);
+        stats.put("parType", parType);
+        stats.put("parAnnee", parAnnee);
+        stats.put("parAnneeEtType", parAnneeEtType);
+        stats.put("calculeLe", LocalDateTime.now());
+
+        courant = new Instantane(Collections.unmodifiableMap(stats), System.nanoTime());
+        instantane = courant;
+        log.debug("📊 Statistiques des dérogations recalculées: {} dérogations", total);
+        return courant;
+    }
+}
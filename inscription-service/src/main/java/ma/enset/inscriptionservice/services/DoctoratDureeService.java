@@ -3,15 +3,31 @@ package ma.enset.inscriptionservice.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ma.enset.inscriptionservice.dto.EligibiliteReinscriptionDTO;
-import ma.enset.inscriptionservice.entities.Inscription;
+import ma.enset.inscriptionservice.entities.ProgressionDoctorale;
 import ma.enset.inscriptionservice.enums.TypeDerogation;
 import ma.enset.inscriptionservice.repositories.DerogationRepository;
 import ma.enset.inscriptionservice.repositories.InscriptionRepository;
+import ma.enset.inscriptionservice.repositories.ProgressionDoctoraleRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
 
 /**
  * Service pour la gestion des règles temporelles du doctorat.
@@ -29,44 +45,96 @@ public class DoctoratDureeService {
 
     private final InscriptionRepository inscriptionRepository;
     private final DerogationRepository derogationRepository;
+    private final ProgressionDoctoraleRepository progressionRepository;
 
     // Constantes du cahier des charges
     public static final int DUREE_NORMALE_ANNEES = 3;
     public static final int DUREE_MAXIMALE_ANNEES = 6;
 
     /**
-     * Calcule l'année de doctorat actuelle du doctorant
-     * Basé sur la date de première inscription
+     * Année de doctorat actuelle du doctorant, lue dans sa progression (1 accès par clé primaire).
+     * À défaut de progression (pas encore synchronisée), calculée par agrégat sur ses inscriptions.
      */
     public int calculerAnneeDoctorat(Long doctorantId) {
-        // Trouver la première inscription du doctorant
-        List<Inscription> inscriptions = inscriptionRepository.findByDoctorantId(doctorantId);
-        
-        if (inscriptions.isEmpty()) {
-            return 0; // Pas encore inscrit
+        return progressionRepository.findById(doctorantId)
+                .map(ProgressionDoctorale::getAnneeActuelle)
+                .orElseGet(() -> inscriptionRepository.findPremieresInscriptionsByDoctorantIdIn(List.of(doctorantId))
+                        .stream()
+                        .findFirst()
+                        .map(ligne -> anneeDepuis(datePremiereInscription(ligne)))
+                        .orElse(0)); // Pas encore inscrit
+    }
+
+    // ========================================================
+    // PROGRESSION DOCTORALE (année persistée)
+    // ========================================================
+
+    /**
+     * Recalcule la progression d'un doctorant après création, validation ou suppression d'une inscription
+     */
+    @Transactional
+    public void rafraichirProgression(Long doctorantId) {
+        List<Object[]> lignes = inscriptionRepository.findPremieresInscriptionsByDoctorantIdIn(List.of(doctorantId));
+        if (lignes.isEmpty()) {
+            progressionRepository.deleteById(doctorantId);
+            return;
         }
+        LocalDate date = datePremiereInscription(lignes.get(0));
+        ProgressionDoctorale progression = progressionRepository.findById(doctorantId)
+                .orElseGet(() -> new ProgressionDoctorale(doctorantId, date, null, null));
+        progression.setDatePremiereInscription(date);
+        progression.setAnneeActuelle(anneeDepuis(date));
+        progressionRepository.save(progression);
+    }
+
+    /**
+     * Bascule nocturne des années et réconciliation avec les inscriptions (une requête d'agrégat,
+     * une lecture des progressions, puis écriture des seules lignes modifiées).
+     * Exécutée aussi au démarrage pour créer les progressions manquantes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${progression-doctorale.bascule-cron:0 5 0 * * *}")
+    @Transactional
+    public void synchroniserProgressions() {
+        Map<Long, ProgressionDoctorale> existantes = new HashMap<>();
+        progressionRepository.findAll().forEach(p -> existantes.put(p.getDoctorantId(), p));
 
-        // Trouver la date de première inscription
-        LocalDate datePremiereInscription = inscriptions.stream()
-                .filter(i -> i.getDatePremiereInscription() != null)
-                .map(Inscription::getDatePremiereInscription)
-                .min(LocalDate::compareTo)
-                .orElse(null);
-
-        if (datePremiereInscription == null) {
-            // Utiliser la date de création de la première inscription
-            datePremiereInscription = inscriptions.stream()
-                    .map(i -> i.getCreatedAt().toLocalDate())
-                    .min(LocalDate::compareTo)
-                    .orElse(LocalDate.now());
+        List<ProgressionDoctorale> modifiees = new ArrayList<>();
+        for (Object[] ligne : inscriptionRepository.findPremieresInscriptions()) {
+            Long doctorantId = (Long) ligne[0];
+            LocalDate date = datePremiereInscription(ligne);
+            int annee = anneeDepuis(date);
+            ProgressionDoctorale progression = existantes.remove(doctorantId);
+            if (progression == null) {
+                modifiees.add(new ProgressionDoctorale(doctorantId, date, annee, null));
+            } else if (!date.equals(progression.getDatePremiereInscription()) || annee != progression.getAnneeActuelle()) {
+                progression.setDatePremiereInscription(date);
+                progression.setAnneeActuelle(annee);
+                modifiees.add(progression);
+            }
         }
+        progressionRepository.saveAll(modifiees);
+        // Doctorants dont toutes les inscriptions ont été supprimées
+        progressionRepository.deleteAllInBatch(existantes.values());
+
+        log.info("📅 Progressions doctorales synchronisées: {} mises à jour, {} supprimées",
+                modifiees.size(), existantes.size());
+    }
+
+    /**
+     * Ligne [doctorantId, MIN(datePremiereInscription), MIN(createdAt)] → date de première inscription,
+     * la date de création servant à défaut
+     */
+    private LocalDate datePremiereInscription(Object[] ligne) {
+        return ligne[1] != null ? (LocalDate) ligne[1] : ((LocalDateTime) ligne[2]).toLocalDate();
+    }
 
-        // Calculer le nombre d'années depuis la première inscription
+    /**
+     * Année de doctorat à partir de la date de première inscription (commence à 1)
+     */
+    private int anneeDepuis(LocalDate datePremiereInscription) {
         Period period = Period.between(datePremiereInscription, LocalDate.now());
-        int annees = period.getYears();
-        
-        // L'année de doctorat commence à 1
-        return annees + 1;
+        return period.getYears() + 1;
     }
 
     /**
@@ -76,14 +144,59 @@ public class DoctoratDureeService {
      */
     public EligibiliteReinscriptionDTO verifierEligibiliteReinscription(Long doctorantId) {
         int anneeActuelle = calculerAnneeDoctorat(doctorantId);
-        int prochaineAnnee = anneeActuelle + 1;
 
         log.info("🔍 Vérification éligibilité - Doctorant: {}, Année actuelle: {}, Prochaine: {}", 
-                doctorantId, anneeActuelle, prochaineAnnee);
+                doctorantId, anneeActuelle, anneeActuelle + 1);
+
+        return evaluerEligibilite(doctorantId, anneeActuelle,
+                annee -> derogationRepository.hasDerogationValide(doctorantId, annee));
+    }
+
+    /**
+     * Éligibilité d'un lot de doctorants (ouverture d'une campagne de réinscription).
+     *
+     * Deux requêtes quel que soit le nombre de doctorants : MIN(date_premiere_inscription) groupé par
+     * doctorant, puis les dérogations approuvées des seuls doctorants qui passent en 4ème, 5ème ou 6ème année.
+     * Sans liste d'ids, tous les doctorants ayant au moins une inscription sont évalués.
+     */
+    public Stream<EligibiliteReinscriptionDTO> verifierEligibiliteReinscription(Collection<Long> doctorantIds) {
+        boolean tous = doctorantIds == null || doctorantIds.isEmpty();
+        List<Object[]> premieres = tous
+                ? inscriptionRepository.findPremieresInscriptions()
+                : inscriptionRepository.findPremieresInscriptionsByDoctorantIdIn(doctorantIds);
+
+        Map<Long, Integer> annees = new LinkedHashMap<>();
+        for (Object[] ligne : premieres) {
+            annees.put((Long) ligne[0], anneeDepuis(datePremiereInscription(ligne)));
+        }
+
+        Set<Long> aVerifier = new HashSet<>();
+        annees.forEach((doctorantId, annee) -> {
+            if (annee + 1 > DUREE_NORMALE_ANNEES && annee + 1 <= DUREE_MAXIMALE_ANNEES) aVerifier.add(doctorantId);
+        });
+        Map<Long, Set<Integer>> derogations = new HashMap<>();
+        if (!aVerifier.isEmpty()) {
+            for (Object[] ligne : derogationRepository.findAnneesDerogationValide(aVerifier)) {
+                derogations.computeIfAbsent((Long) ligne[0], k -> new HashSet<>()).add((Integer) ligne[1]);
+            }
+        }
+
+        log.info("🔍 Vérification éligibilité groupée - {} doctorants, {} à contrôler pour dérogation",
+                tous ? annees.size() : doctorantIds.size(), aVerifier.size());
+
+        Collection<Long> ids = tous ? annees.keySet() : new LinkedHashSet<>(doctorantIds);
+        return ids.stream().map(doctorantId -> evaluerEligibilite(doctorantId, annees.getOrDefault(doctorantId, 0),
+                annee -> derogations.getOrDefault(doctorantId, Set.of()).contains(annee)));
+    }
+
+    private EligibiliteReinscriptionDTO evaluerEligibilite(Long doctorantId, int anneeActuelle,
+                                                           IntPredicate derogationValide) {
+        int prochaineAnnee = anneeActuelle + 1;
 
         // CAS 1 : Première inscription ou années 1-3 (dans la durée normale)
         if (prochaineAnnee <= DUREE_NORMALE_ANNEES) {
             return EligibiliteReinscriptionDTO.builder()
+                    .doctorantId(doctorantId)
                     .eligible(true)
                     .anneeActuelle(anneeActuelle)
                     .prochaineAnnee(prochaineAnnee)
@@ -95,6 +208,7 @@ public class DoctoratDureeService {
         // CAS 2 : Au-delà de 6 ans - BLOCAGE DÉFINITIF
         if (prochaineAnnee > DUREE_MAXIMALE_ANNEES) {
             return EligibiliteReinscriptionDTO.builder()
+                    .doctorantId(doctorantId)
                     .eligible(false)
                     .anneeActuelle(anneeActuelle)
                     .prochaineAnnee(prochaineAnnee)
@@ -105,10 +219,11 @@ public class DoctoratDureeService {
         }
 
         // CAS 3 : Années 4, 5 ou 6 - Vérifier si dérogation existe
-        boolean hasDerogation = derogationRepository.hasDerogationValide(doctorantId, prochaineAnnee);
+        boolean hasDerogation = derogationValide.test(prochaineAnnee);
 
         if (hasDerogation) {
             return EligibiliteReinscriptionDTO.builder()
+                    .doctorantId(doctorantId)
                     .eligible(true)
                     .anneeActuelle(anneeActuelle)
                     .prochaineAnnee(prochaineAnnee)
@@ -119,6 +234,7 @@ public class DoctoratDureeService {
         } else {
             TypeDerogation typeRequis = TypeDerogation.pourAnnee(prochaineAnnee);
             return EligibiliteReinscriptionDTO.builder()
+                    .doctorantId(doctorantId)
                     .eligible(false)
                     .anneeActuelle(anneeActuelle)
                     .prochaineAnnee(prochaineAnnee)
@@ -23,6 +23,7 @@ public class InscriptionServiceImpl implements InscriptionService {
 
     private final InscriptionRepository inscriptionRepository;
     private final CampagneRepository campagneRepository;
+    private final DoctoratDureeService doctoratDureeService;
 
     // =============================================================
     // CRUD
@@ -39,7 +40,9 @@ public class InscriptionServiceImpl implements InscriptionService {
         }
 
         inscription.setStatut(StatutInscription.BROUILLON);
-        return inscriptionRepository.save(inscription);
+        Inscription saved = inscriptionRepository.save(inscription);
+        doctoratDureeService.rafraichirProgression(saved.getDoctorantId());
+        return saved;
     }
 
     @Override
@@ -62,7 +65,10 @@ public class InscriptionServiceImpl implements InscriptionService {
 
     @Override
     public void delete(Long id) {
-        inscriptionRepository.deleteById(id);
+        inscriptionRepository.findById(id).ifPresent(inscription -> {
+            inscriptionRepository.delete(inscription);
+            doctoratDureeService.rafraichirProgression(inscription.getDoctorantId());
+        });
     }
 
     @Override
@@ -197,7 +203,9 @@ public class InscriptionServiceImpl implements InscriptionService {
         inscription.setDateValidationAdmin(LocalDateTime.now());
 
         log.info("✅ Inscription {} validée par admin → ADMIS", id);
-        return inscriptionRepository.save(inscription);
+        Inscription saved = inscriptionRepository.save(inscription);
+        doctoratDureeService.rafraichirProgression(saved.getDoctorantId());
+        return saved;
     }
 
     @Override
@@ -0,0 +1,32 @@
+package ma.enset.inscriptionservice.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Actions différées à la fin de la transaction en cours ; exécutées tout de suite
+ * s'il n'y a pas de transaction active.
+ */
+public final class Transactions {
+
+    private Transactions() {
+    }
+
+    /**
+     * Exécute l'action à la fin de la transaction, avec true si elle a été validée
+     */
+    public static void apresTransaction(Consumer<Boolean> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            action.accept(true);
+        }
+    }
+}
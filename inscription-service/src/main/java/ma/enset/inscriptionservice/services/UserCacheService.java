@@ -0,0 +1,100 @@
+package ma.enset.inscriptionservice.services;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.inscriptionservice.clients.UserServiceClient;
+import ma.enset.inscriptionservice.clients.UserServiceClientFallback;
+import ma.enset.inscriptionservice.dto.UserDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Cache local à TTL court des UserDTO du user-service, pour l'enrichissement des listes de dérogations.
+ *
+ * - Les ids absents du cache sont résolus en appels groupés (POST /api/users/dto/batch).
+ * - Pas d'invalidation par événement : le TTL court ({@code expire-after-write}) borne la péremption.
+ * - Les réponses du fallback Feign ne sont jamais mises en cache.
+ * - Métriques hits/misses/évictions exposées via Micrometer (cache = "userCache").
+ */
+@Service
+@Slf4j
+public class UserCacheService {
+
+    // Nombre max d'ids envoyés par appel groupé au user-service
+    private static final int USER_BATCH_SIZE = 500;
+
+    private final UserServiceClient userServiceClient;
+    private final LoadingCache<Long, UserDTO> cache;
+
+    public UserCacheService(UserServiceClient userServiceClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${user-cache.max-size:5000}") long maxSize,
+                            @Value("${user-cache.expire-after-write:2m}") Duration expireAfterWrite) {
+        this.userServiceClient = userServiceClient;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build(new UserLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userCache");
+    }
+
+    /**
+     * Récupérer plusieurs utilisateurs : seuls les ids absents du cache partent au user-service,
+     * en appels groupés. Les ids non résolus sont absents de la map retournée.
+     */
+    public Map<Long, UserDTO> getUsers(Collection<Long> ids) {
+        List<Long> keys = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (keys.isEmpty()) return new HashMap<>();
+        try {
+            return cache.getAll(keys);
+        } catch (Exception e) {
+            log.warn("Impossible de récupérer {} utilisateurs: {}", keys.size(), e.getMessage());
+            return cache.getAllPresent(keys);
+        }
+    }
+
+    private static boolean isFallback(UserDTO user) {
+        return user == null || UserServiceClientFallback.UNAVAILABLE_EMAIL.equals(user.getEmail());
+    }
+
+    private class UserLoader implements CacheLoader<Long, UserDTO> {
+
+        @Override
+        public UserDTO load(Long id) {
+            UserDTO user = userServiceClient.getUserById(id);
+            if (isFallback(user)) {
+                throw new IllegalStateException("User Service indisponible pour l'utilisateur " + id);
+            }
+            return user;
+        }
+
+        @Override
+        public Map<Long, UserDTO> loadAll(Set<? extends Long> ids) {
+            Map<Long, UserDTO> users = new HashMap<>();
+            List<Long> idList = new ArrayList<>(ids);
+            for (int i = 0; i < idList.size(); i += USER_BATCH_SIZE) {
+                List<Long> lot = new ArrayList<>(idList.subList(i, Math.min(i + USER_BATCH_SIZE, idList.size())));
+                List<UserDTO> reponse = userServiceClient.getUsersByIds(lot);
+                if (reponse == null) continue;
+                for (UserDTO user : reponse) {
+                    if (!isFallback(user)) users.put(user.getId(), user);
+                }
+            }
+            return users;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ma.enset.inscriptionservice.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import ma.enset.inscriptionservice.clients.UserServiceClient;
+import ma.enset.inscriptionservice.dto.UserDTO;
+import ma.enset.inscriptionservice.entities.Derogation;
+import ma.enset.inscriptionservice.enums.StatutDerogation;
+import ma.enset.inscriptionservice.enums.TypeDerogation;
+import ma.enset.inscriptionservice.repositories.DerogationRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nombre de requêtes SQL pour un directeur de 30 doctorants : la lecture reste à 2 SELECT
+ * (auparavant 1 + 30 SELECT et un UPDATE par dérogation), le rattrapage à un seul UPDATE.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.bootstrap.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({DerogationServiceImpl.class, AffectationDirecteurService.class, UserCacheService.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DerogationsDirecteurRequetesTest {
+
+    private static final long DIRECTEUR_ID = 7L;
+    private static final int NB_DOCTORANTS = 30;
+
+    @Autowired
+    private DerogationService derogationService;
+
+    @Autowired
+    private DerogationRepository derogationRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private UserServiceClient userServiceClient;
+
+    @MockitoSpyBean
+    private AffectationDirecteurService affectationDirecteurService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        List<Derogation> derogations = new ArrayList<>();
+        for (long doctorantId = 100; doctorantId < 100 + NB_DOCTORANTS; doctorantId++) {
+            // Ancienne demande sans directeur_id + une demande déjà affectée
+            derogations.add(derogation(doctorantId, null));
+            derogations.add(derogation(doctorantId, DIRECTEUR_ID));
+        }
+        derogationRepository.saveAll(derogations);
+
+        List<UserDTO> doctorants = LongStream.range(100, 100 + NB_DOCTORANTS)
+                .mapToObj(id -> UserDTO.builder().id(id).nom("Doctorant").prenom("D" + id).build())
+                .toList();
+        when(userServiceClient.getDoctorantsByDirecteur(DIRECTEUR_ID)).thenReturn(doctorants);
+        when(userServiceClient.getUsersByIds(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> UserDTO.builder().id(id).nom("Nom").build()).toList();
+        });
+        // Le rattrapage asynchrone est mesuré à part
+        doNothing().when(affectationDirecteurService).planifier(anyLong(), any());
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        derogationRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void lecture_deuxRequetes_puisUnSeulUpdate() {
+        List<Derogation> derogations = derogationService.getDerogationsEnAttenteDirecteur(DIRECTEUR_ID);
+
+        assertThat(derogations).hasSize(2 * NB_DOCTORANTS);
+        // Enrichissement : un seul appel groupé au user-service pour les 31 utilisateurs
+        verify(userServiceClient).getUsersByIds(any());
+        assertThat(derogations).extracting(Derogation::getDirecteurId).containsOnly(DIRECTEUR_ID);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+
+        ArgumentCaptor<List<Long>> ids = ArgumentCaptor.forClass(List.class);
+        verify(affectationDirecteurService).planifier(eq(DIRECTEUR_ID), ids.capture());
+        assertThat(ids.getValue()).hasSize(NB_DOCTORANTS);
+
+        statistics.clear();
+        int modifiees = affectationDirecteurService.affecter(DIRECTEUR_ID, ids.getValue());
+
+        assertThat(modifiees).isEqualTo(NB_DOCTORANTS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(derogationRepository.findByDirecteurIdOrderByDateDemandeDesc(DIRECTEUR_ID)).hasSize(2 * NB_DOCTORANTS);
+    }
+
+    private Derogation derogation(Long doctorantId, Long directeurId) {
+        return Derogation.builder()
+                .doctorantId(doctorantId)
+                .directeurId(directeurId)
+                .typeDerogation(TypeDerogation.PROLONGATION_4EME_ANNEE)
+                .motif("Motif")
+                .statut(StatutDerogation.EN_ATTENTE_DIRECTEUR)
+                .build();
+    }
+}
@@ -37,6 +37,8 @@ public class KafkaConfig {
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "ma.enset.*");
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, Object.class.getName());
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        // Les invitations jury sont publiées en transaction : ignorer les lots annulés
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         
         return new DefaultKafkaConsumerFactory<>(props);
     }
@@ -0,0 +1,219 @@
+package ma.enset.soutenanceservice.clients;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.dto.UserDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Appels au user-service protégés contre la latence de queue.
+ *
+ * - Bulkhead (sémaphore) : au plus {@code max-concurrent} appels en vol ; au-delà de {@code max-wait}
+ *   d'attente, on répond tout de suite avec le fallback au lieu de s'empiler. Une place n'est rendue
+ *   qu'à la fin réelle de l'appel ; un appel abandonné (timeout, couverture perdante) est interrompu
+ *   (thread virtuel : l'interruption ferme la socket en cours) pour rendre sa place au plus vite.
+ * - Time limiter : un appel sans réponse après {@code timeout} est abandonné (fallback).
+ * - Requête couverte (hedging) : si la réponse tarde au-delà de {@code hedge.delay}, un second appel
+ *   identique part ; le load balancer round-robin l'envoie sur une autre instance Eureka et la première
+ *   réponse réussie gagne. Le second appel n'est lancé que s'il reste une place dans le bulkhead.
+ *
+ * Toutes les opérations sont des lectures, donc rejouables sans effet de bord.
+ * Métriques : user.service.client (latence p50/p95/p99 par operation et outcome),
+ * user.service.client.hedge (couvertures lancées / gagnées), user.service.client.bulkhead.available.
+ */
+@Component
+@Slf4j
+public class ResilientUserClient {
+
+    private final UserServiceClient userServiceClient;
+    private final UserServiceClientFallback fallback;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore bulkhead;
+    private final Duration maxWait;
+    private final Duration timeout;
+    private final boolean hedgeEnabled;
+    private final Duration hedgeDelay;
+    private final Counter hedgesLances;
+    private final Counter hedgesGagnes;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ResilientUserClient(UserServiceClient userServiceClient,
+                               UserServiceClientFallback fallback,
+                               MeterRegistry meterRegistry,
+                               @Value("${user-service-client.bulkhead.max-concurrent:20}") int maxConcurrent,
+                               @Value("${user-service-client.bulkhead.max-wait:50ms}") Duration maxWait,
+                               @Value("${user-service-client.timeout:2s}") Duration timeout,
+                               @Value("${user-service-client.hedge.enabled:true}") boolean hedgeEnabled,
+                               @Value("${user-service-client.hedge.delay:150ms}") Duration hedgeDelay) {
+        this.userServiceClient = userServiceClient;
+        this.fallback = fallback;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.maxWait = maxWait;
+        this.timeout = timeout;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeDelay = hedgeDelay;
+        this.hedgesLances = Counter.builder("user.service.client.hedge")
+                .description("Requêtes couvertes envoyées au user-service")
+                .tag("result", "sent")
+                .register(meterRegistry);
+        this.hedgesGagnes = Counter.builder("user.service.client.hedge")
+                .description("Requêtes couvertes envoyées au user-service")
+                .tag("result", "won")
+                .register(meterRegistry);
+        Gauge.builder("user.service.client.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Places libres dans le bulkhead du user-service")
+                .register(meterRegistry);
+    }
+
+    public UserDTO getUserById(Long id) {
+        return executer("getUserById", () -> userServiceClient.getUserById(id), () -> fallback.getUserById(id));
+    }
+
+    public UserDTO getUserByUsername(String username) {
+        return executer("getUserByUsername", () -> userServiceClient.getUserByUsername(username),
+                () -> fallback.getUserByUsername(username));
+    }
+
+    public List<UserDTO> getUsersByIds(Collection<Long> ids) {
+        return executer("getUsersByIds", () -> userServiceClient.getUsersByIds(ids), () -> fallback.getUsersByIds(ids));
+    }
+
+    @PreDestroy
+    void fermer() {
+        executor.shutdownNow();
+    }
+
+    private <T> T executer(String operation, Supplier<T> appel, Supplier<T> secours) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            if (!bulkhead.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                outcome = "bulkhead";
+                log.warn("⚠️ Bulkhead user-service saturé ({}), fallback", operation);
+                return secours.get();
+            }
+            CompletableFuture<T> principal = lancer(appel);
+            if (hedgeEnabled && hedgeDelay.compareTo(timeout) < 0) {
+                try {
+                    return principal.get(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException lent) {
+                    if (bulkhead.tryAcquire()) {
+                        return premiereReussite(principal, lancer(appel), timeout.minus(hedgeDelay));
+                    }
+                    // Bulkhead plein : pas de couverture, on attend le premier appel
+                    return attendre(principal, timeout.minus(hedgeDelay));
+                }
+            }
+            return attendre(principal, timeout);
+        } catch (TimeoutException e) {
+            outcome = "timeout";
+            log.warn("⏱️ User-service sans réponse après {} ({}), fallback", timeout, operation);
+            return secours.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = "error";
+            return secours.get();
+        } catch (Exception e) {
+            outcome = "error";
+            log.warn("⚠️ Appel user-service en échec ({}): {}", operation, e.getMessage());
+            return secours.get();
+        } finally {
+            sample.stop(timer(operation, outcome));
+        }
+    }
+
+    /**
+     * Lance l'appel avec une place déjà prise dans le bulkhead, rendue à la fin réelle de l'appel Feign.
+     * Annuler le futur retourné (time limiter, couverture perdante) interrompt le thread de l'appel.
+     */
+    private <T> CompletableFuture<T> lancer(Supplier<T> appel) {
+        CompletableFuture<T> resultat = new CompletableFuture<>();
+        AtomicReference<Thread> executant = new AtomicReference<>();
+        try {
+            executor.execute(() -> {
+                executant.set(Thread.currentThread());
+                try {
+                    // Annulé avant le démarrage : l'appel n'est pas envoyé
+                    if (!resultat.isDone()) resultat.complete(appel.get());
+                } catch (Throwable e) {
+                    resultat.completeExceptionally(e);
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            throw e;
+        }
+        resultat.whenComplete((valeur, erreur) -> {
+            if (!resultat.isCancelled()) return;
+            Thread thread = executant.get();
+            if (thread != null) thread.interrupt();
+        });
+        return resultat;
+    }
+
+    private <T> T premiereReussite(CompletableFuture<T> principal, CompletableFuture<T> couverture, Duration reste)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        hedgesLances.increment();
+        CompletableFuture<T> premier = new CompletableFuture<>();
+        AtomicInteger echecs = new AtomicInteger();
+        principal.whenComplete((resultat, erreur) -> {
+            if (erreur == null) premier.complete(resultat);
+            else if (echecs.incrementAndGet() == 2) premier.completeExceptionally(erreur);
+        });
+        couverture.whenComplete((resultat, erreur) -> {
+            if (erreur == null) {
+                if (premier.complete(resultat)) hedgesGagnes.increment();
+            } else if (echecs.incrementAndGet() == 2) {
+                premier.completeExceptionally(erreur);
+            }
+        });
+        // Le perdant (ou les deux, si le délai expire) est annulé : sa place revient au bulkhead
+        premier.whenComplete((resultat, erreur) -> {
+            principal.cancel(true);
+            couverture.cancel(true);
+        });
+        return attendre(premier, reste);
+    }
+
+    private <T> T attendre(CompletableFuture<T> future, Duration delai)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            return future.get(delai.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return Timer.builder("user.service.client")
+                .description("Latence des appels au user-service (bulkhead, time limiter et couverture compris)")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
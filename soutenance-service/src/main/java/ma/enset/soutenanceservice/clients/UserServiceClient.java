@@ -4,6 +4,11 @@ import ma.enset.soutenanceservice.dto.UserDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.Collection;
+import java.util.List;
 
 @FeignClient(name = "USER-SERVICE", fallback = UserServiceClientFallback.class)
 public interface UserServiceClient {
@@ -13,4 +18,7 @@ public interface UserServiceClient {
 
     @GetMapping("/api/users/username/{username}/dto")
     UserDTO getUserByUsername(@PathVariable String username);
+
+    @PostMapping("/api/users/dto/batch")
+    List<UserDTO> getUsersByIds(@RequestBody Collection<Long> ids);
 }
\ No newline at end of file
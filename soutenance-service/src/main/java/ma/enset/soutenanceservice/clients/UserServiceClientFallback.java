@@ -4,29 +4,45 @@ import lombok.extern.slf4j.Slf4j;
 import ma.enset.soutenanceservice.dto.UserDTO;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.List;
+
 @Component
 @Slf4j
 public class UserServiceClientFallback implements UserServiceClient {
 
+    // Marque les utilisateurs "par défaut" renvoyés quand le User Service est indisponible
+    public static final String UNAVAILABLE_EMAIL = "unavailable@service.com";
+
     @Override
     public UserDTO getUserById(Long id) {
         log.warn("Fallback: User Service is unavailable. Returning default user for id: {}", id);
+        return defaultUser(id);
+    }
+
+    @Override
+    public UserDTO getUserByUsername(String username) {
+        log.warn("Fallback: User Service is unavailable. Returning default user for username: {}", username);
         UserDTO defaultUser = new UserDTO();
-        defaultUser.setId(id);
+        defaultUser.setUsername(username);
         defaultUser.setNom("INCONNU");
         defaultUser.setPrenom("Service indisponible");
-        defaultUser.setEmail("unavailable@service.com");
+        defaultUser.setEmail(UNAVAILABLE_EMAIL);
         return defaultUser;
     }
 
     @Override
-    public UserDTO getUserByUsername(String username) {
-        log.warn("Fallback: User Service is unavailable. Returning default user for username: {}", username);
+    public List<UserDTO> getUsersByIds(Collection<Long> ids) {
+        log.warn("Fallback: User Service is unavailable. Returning default users for {} ids", ids.size());
+        return ids.stream().map(this::defaultUser).toList();
+    }
+
+    private UserDTO defaultUser(Long id) {
         UserDTO defaultUser = new UserDTO();
-        defaultUser.setUsername(username);
+        defaultUser.setId(id);
         defaultUser.setNom("INCONNU");
         defaultUser.setPrenom("Service indisponible");
-        defaultUser.setEmail("unavailable@service.com");
+        defaultUser.setEmail(UNAVAILABLE_EMAIL);
         return defaultUser;
     }
 }
\ No newline at end of file
@@ -7,6 +7,9 @@ public final class KafkaTopics {
     public static final String SOUTENANCE_SCHEDULED = "soutenance-scheduled";
     public static final String JURY_INVITATION = "jury-invitation";
     
+    // Publié par user-service
+    public static final String USER_UPDATED = "user-updated";
+    
     private KafkaTopics() {
     }
 }
@@ -0,0 +1,31 @@
+package ma.enset.soutenanceservice.consumers;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.config.KafkaTopics;
+import ma.enset.soutenanceservice.events.UserUpdatedEvent;
+import ma.enset.soutenanceservice.services.UserCacheService;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserEventConsumer {
+
+    private final UserCacheService userCacheService;
+
+    /**
+     * Écoute les modifications d'utilisateurs pour invalider le cache local.
+     * Group id unique par instance : chaque instance doit recevoir tous les événements.
+     */
+    @KafkaListener(
+            topics = KafkaTopics.USER_UPDATED,
+            groupId = "soutenance-user-cache-#{T(java.util.UUID).randomUUID()}",
+            containerFactory = "userUpdatedKafkaListenerContainerFactory"
+    )
+    public void handleUserUpdated(UserUpdatedEvent event) {
+        log.debug("📩 Événement reçu: Utilisateur modifié - ID: {}", event.getUserId());
+        userCacheService.invalidate(event.getUserId());
+    }
+}
@@ -3,17 +3,30 @@ package ma.enset.soutenanceservice.controllers;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.dto.SoutenanceDetailDTO;
+import ma.enset.soutenanceservice.dto.SoutenanceSummaryDTO;
+import ma.enset.soutenanceservice.dto.TransitionGroupeeRequest;
 import ma.enset.soutenanceservice.entities.JuryDisponible;
 import ma.enset.soutenanceservice.entities.MembreJury;
 import ma.enset.soutenanceservice.entities.Soutenance;
 import ma.enset.soutenanceservice.enums.RoleJury;
 import ma.enset.soutenanceservice.enums.StatutSoutenance;
+import ma.enset.soutenanceservice.services.CalendrierService;
+import ma.enset.soutenanceservice.services.ConcurrenceOptimiste;
+import ma.enset.soutenanceservice.services.ConflitConcurrentException;
+import ma.enset.soutenanceservice.services.RechercheTheseService;
 import ma.enset.soutenanceservice.services.SoutenanceService;
+import ma.enset.soutenanceservice.services.SoutenanceStreamService;
+import ma.enset.soutenanceservice.services.TransitionGroupeeService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -28,6 +41,11 @@ import java.util.Map;
 public class SoutenanceController {
 
     private final SoutenanceService soutenanceService;
+    private final TransitionGroupeeService transitionGroupeeService;
+    private final SoutenanceStreamService soutenanceStreamService;
+    private final RechercheTheseService rechercheTheseService;
+    private final CalendrierService calendrierService;
+    private final ConcurrenceOptimiste concurrenceOptimiste;
 
     // ... (CRUD de base inchangé) ...
 
@@ -53,37 +71,147 @@ public class SoutenanceController {
         }
     }
 
+    /**
+     * Vue liste (résumé projeté, sans jury ni chemins de fichiers)
+     */
     @GetMapping
-    public ResponseEntity<List<Soutenance>> getAllSoutenances() {
+    public ResponseEntity<List<SoutenanceSummaryDTO>> getAllSoutenances() {
         return ResponseEntity.ok(soutenanceService.getAllSoutenances());
     }
 
+    /**
+     * Liste paginée par curseur (vue légère, sans jury)
+     * GET /api/soutenances/page?size=20&statut=PLANIFIEE&directeurId=5&dateDebut=2025-01-01&dateFin=2025-12-31&cursor=...
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getSoutenancesPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) StatutSoutenance statut,
+            @RequestParam(required = false) Long directeurId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateDebut,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFin) {
+        try {
+            return ResponseEntity.ok(soutenanceService.getSoutenancesPage(cursor, size, statut, directeurId, dateDebut, dateFin));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Transition appliquée à plusieurs soutenances, résultat par id
+     * POST /api/soutenances/transitions-groupees
+     * { "action": "AUTORISER", "ids": [1, 2, 3], "commentaire": "..." }
+     * { "action": "ENREGISTRER_RESULTAT", "resultats": [{ "id": 4, "note": 17.5, "mention": "Très honorable", "felicitations": true }] }
+     */
+    @PostMapping("/transitions-groupees")
+    public ResponseEntity<?> appliquerTransitionGroupee(@RequestBody TransitionGroupeeRequest request) {
+        try {
+            return ResponseEntity.ok(transitionGroupeeService.appliquer(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Vue détail : colonnes de la soutenance + jury, lus par deux requêtes de projection
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Soutenance> getSoutenanceById(@PathVariable Long id) {
+    public ResponseEntity<SoutenanceDetailDTO> getSoutenanceById(@PathVariable Long id) {
         return soutenanceService.getSoutenanceById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/doctorant/{doctorantId}")
-    public ResponseEntity<List<Soutenance>> getSoutenancesByDoctorant(@PathVariable Long doctorantId) {
+    public ResponseEntity<List<SoutenanceSummaryDTO>> getSoutenancesByDoctorant(@PathVariable Long doctorantId) {
         return ResponseEntity.ok(soutenanceService.getSoutenancesByDoctorant(doctorantId));
     }
 
     @GetMapping("/directeur/{directeurId}")
-    public ResponseEntity<List<Soutenance>> getSoutenancesByDirecteur(@PathVariable Long directeurId) {
+    public ResponseEntity<List<SoutenanceSummaryDTO>> getSoutenancesByDirecteur(@PathVariable Long directeurId) {
         return ResponseEntity.ok(soutenanceService.getSoutenancesByDirecteur(directeurId));
     }
 
+    /**
+     * Nombre de soutenances par statut (compteurs en mémoire, pour les tableaux de bord)
+     * GET /api/soutenances/compteurs
+     */
+    @GetMapping("/compteurs")
+    public ResponseEntity<Map<String, Long>> getCompteursParStatut() {
+        return ResponseEntity.ok(soutenanceService.getCompteursParStatut());
+    }
+
+    /**
+     * Flux SSE des changements de statut (filtres optionnels)
+     * GET /api/soutenances/stream?directeurId=5   (Accept: text/event-stream)
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChangementsStatut(@RequestParam(required = false) Long directeurId,
+                                              @RequestParam(required = false) Long doctorantId) {
+        return soutenanceStreamService.abonner(directeurId, doctorantId);
+    }
+
+    /**
+     * Recherche plein texte (titre, mots-clés, résumé), classée par pertinence
+     * GET /api/soutenances/recherche?q=apprentissage profond&statut=TERMINEE&limite=20
+     */
+    @GetMapping("/recherche")
+    public ResponseEntity<?> rechercherTheses(@RequestParam String q,
+                                              @RequestParam(required = false) StatutSoutenance statut,
+                                              @RequestParam(defaultValue = "20") int limite) {
+        try {
+            return ResponseEntity.ok(rechercheTheseService.rechercher(q, statut, limite));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Abonnements calendrier (.ics) des soutenances planifiées, avec ETag (304 si inchangé)
+     * GET /api/soutenances/calendrier                      (toutes)
+     * GET /api/soutenances/calendrier/utilisateur/{userId} (doctorant ou directeur)
+     * GET /api/soutenances/calendrier/jury?email=...       (membre du jury)
+     */
+    @GetMapping("/calendrier")
+    public ResponseEntity<byte[]> getCalendrier(WebRequest webRequest) {
+        return calendrier(calendrierService.getFlux(CalendrierService.GLOBAL), webRequest);
+    }
+
+    @GetMapping("/calendrier/utilisateur/{userId}")
+    public ResponseEntity<byte[]> getCalendrierUtilisateur(@PathVariable Long userId, WebRequest webRequest) {
+        return calendrier(calendrierService.getFlux(CalendrierService.cleUtilisateur(userId)), webRequest);
+    }
+
+    @GetMapping("/calendrier/jury")
+    public ResponseEntity<byte[]> getCalendrierJury(@RequestParam String email, WebRequest webRequest) {
+        return calendrier(calendrierService.getFlux(CalendrierService.cleJury(email)), webRequest);
+    }
+
+    private ResponseEntity<byte[]> calendrier(CalendrierService.Flux flux, WebRequest webRequest) {
+        if (webRequest.checkNotModified(flux.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(flux.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/calendar;charset=UTF-8"))
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(flux.etag())
+                .header("Content-Disposition", "inline; filename=\"soutenances.ics\"")
+                .body(flux.contenu());
+    }
+
     @GetMapping("/statut/{statut}")
-    public ResponseEntity<List<Soutenance>> getSoutenancesByStatut(@PathVariable StatutSoutenance statut) {
+    public ResponseEntity<List<SoutenanceSummaryDTO>> getSoutenancesByStatut(@PathVariable StatutSoutenance statut) {
         return ResponseEntity.ok(soutenanceService.getSoutenancesByStatut(statut));
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<Soutenance> updateSoutenance(@PathVariable Long id, @Valid @RequestBody Soutenance soutenance) {
         try {
-            return ResponseEntity.ok(soutenanceService.updateSoutenance(id, soutenance));
+            return ResponseEntity.ok(concurrenceOptimiste.uneFois("updateSoutenance",
+                    () -> soutenanceService.updateSoutenance(id, soutenance)));
+        } catch (ConflitConcurrentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -103,9 +231,10 @@ public class SoutenanceController {
     public ResponseEntity<?> validerPrerequisDirecteur(@PathVariable Long id, @RequestBody(required = false) Map<String, String> payload) {
         try {
             String commentaire = (payload != null) ? payload.get("commentaire") : null;
-            return ResponseEntity.ok(soutenanceService.validerPrerequisDirecteur(id, commentaire));
+            return ResponseEntity.ok(concurrenceOptimiste.reessayer("validerPrerequisDirecteur",
+                    () -> soutenanceService.validerPrerequisDirecteur(id, commentaire)));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
         }
     }
 
@@ -113,9 +242,10 @@ public class SoutenanceController {
     public ResponseEntity<?> rejeterParDirecteur(@PathVariable Long id, @RequestBody Map<String, String> payload) {
         try {
             String commentaire = payload.get("commentaire");
-            return ResponseEntity.ok(soutenanceService.rejeterParDirecteur(id, commentaire));
+            return ResponseEntity.ok(concurrenceOptimiste.uneFois("rejeterParDirecteur",
+                    () -> soutenanceService.rejeterParDirecteur(id, commentaire)));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
         }
     }
 
@@ -130,9 +260,10 @@ public class SoutenanceController {
             String commentaire = (payload != null) ? payload.get("commentaire") : null;
 
             // Appel au service (assurez-vous que la méthode existe dans SoutenanceService)
-            return ResponseEntity.ok(soutenanceService.autoriserSoutenance(id, commentaire));
+            return ResponseEntity.ok(concurrenceOptimiste.reessayer("autoriserSoutenance",
+                    () -> soutenanceService.autoriserSoutenance(id, commentaire)));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
         }
     }
 
@@ -162,6 +293,24 @@ public class SoutenanceController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Membres de jury recommandés pour une soutenance
+     * GET /api/soutenances/{id}/jury/recommandations?role=RAPPORTEUR&grade=PES&etablissement=...&limite=10
+     */
+    @GetMapping("/{id}/jury/recommandations")
+    public ResponseEntity<?> recommanderJury(
+            @PathVariable Long id,
+            @RequestParam(required = false) RoleJury role,
+            @RequestParam(required = false) String grade,
+            @RequestParam(required = false) String etablissement,
+            @RequestParam(defaultValue = "10") int limite) {
+        try {
+            return ResponseEntity.ok(soutenanceService.recommanderJury(id, role, grade, etablissement, limite));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     // ... (Le reste de votre fichier : jury, planification, etc. est correct) ...
     // Assurez-vous simplement d'avoir collé la méthode `autoriserSoutenance` ci-dessus.
 
@@ -169,34 +318,37 @@ public class SoutenanceController {
     @PostMapping("/{id}/jury")
     public ResponseEntity<?> ajouterMembreJury(@PathVariable Long id, @Valid @RequestBody MembreJury membreJury) {
         try {
-            return ResponseEntity.ok(soutenanceService.ajouterMembreJury(id, membreJury));
+            return ResponseEntity.ok(concurrenceOptimiste.uneFois("ajouterMembreJury",
+                    () -> soutenanceService.ajouterMembreJury(id, membreJury)));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
         }
     }
 
     @GetMapping("/{id}/jury")
     public ResponseEntity<?> getMembresJury(@PathVariable Long id) {
-        return soutenanceService.getSoutenanceById(id)
-                .map(s -> ResponseEntity.ok(s.getMembresJury()))
+        return soutenanceService.getMembresJury(id)
+                .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{soutenanceId}/jury/{membreId}")
     public ResponseEntity<?> supprimerMembreJury(@PathVariable Long soutenanceId, @PathVariable Long membreId) {
         try {
-            return ResponseEntity.ok(soutenanceService.supprimerMembreJury(soutenanceId, membreId));
+            return ResponseEntity.ok(concurrenceOptimiste.uneFois("supprimerMembreJury",
+                    () -> soutenanceService.supprimerMembreJury(soutenanceId, membreId)));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
         }
     }
 
     @PutMapping("/{id}/proposer-jury")
     public ResponseEntity<?> proposerJury(@PathVariable Long id) {
         try {
-            return ResponseEntity.ok(soutenanceService.proposerJury(id));
+            return ResponseEntity.ok(concurrenceOptimiste.reessayer("proposerJury",
+                    () -> soutenanceService.proposerJury(id)));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
         }
     }
 
@@ -204,9 +356,10 @@ public class SoutenanceController {
     public ResponseEntity<?> validerJury(@PathVariable Long id, @RequestBody(required = false) Map<String, String> payload) {
         try {
             String commentaire = (payload != null) ? payload.get("commentaire") : null;
-            return ResponseEntity.ok(soutenanceService.validerJury(id, commentaire));
+            return ResponseEntity.ok(concurrenceOptimiste.uneFois("validerJury",
+                    () -> soutenanceService.validerJury(id, commentaire)));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
         }
     }
 
@@ -214,9 +367,10 @@ public class SoutenanceController {
     public ResponseEntity<?> refuserJury(@PathVariable Long id, @RequestBody Map<String, String> payload) {
         try {
             String commentaire = payload.get("commentaire");
-            return ResponseEntity.ok(soutenanceService.refuserJury(id, commentaire));
+            return ResponseEntity.ok(concurrenceOptimiste.uneFois("refuserJury",
+                    () -> soutenanceService.refuserJury(id, commentaire)));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
         }
     }
 
@@ -228,9 +382,10 @@ public class SoutenanceController {
             String lieu = (String) payload.get("lieuSoutenance");
             LocalDate date = LocalDate.parse(dateStr);
             LocalTime heure = (heureStr != null && !heureStr.isEmpty()) ? LocalTime.parse(heureStr) : null;
-            return ResponseEntity.ok(soutenanceService.proposerDateSoutenance(id, date, heure, lieu));
+            return ResponseEntity.ok(concurrenceOptimiste.uneFois("proposerDateSoutenance",
+                    () -> soutenanceService.proposerDateSoutenance(id, date, heure, lieu)));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
         }
     }
 
@@ -242,7 +397,43 @@ public class SoutenanceController {
             String lieu = (String) payload.get("lieuSoutenance");
             LocalDate date = LocalDate.parse(dateStr);
             LocalTime heure = (heureStr != null && !heureStr.isEmpty()) ? LocalTime.parse(heureStr) : LocalTime.of(9, 0);
-            return ResponseEntity.ok(soutenanceService.planifierSoutenance(id, date, heure, lieu));
+            return ResponseEntity.ok(concurrenceOptimiste.uneFois("planifierSoutenance",
+                    () -> soutenanceService.planifierSoutenance(id, date, heure, lieu)));
+        } catch (RuntimeException e) {
+            return erreur(e);
+        }
+    }
+
+    /**
+     * Conflits (salle / membres du jury) pour un créneau donné
+     * GET /api/soutenances/{id}/conflits?dateSoutenance=2025-06-12&heureSoutenance=09:00&lieuSoutenance=Amphi A
+     */
+    @GetMapping("/{id}/conflits")
+    public ResponseEntity<?> verifierConflits(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateSoutenance,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime heureSoutenance,
+            @RequestParam(required = false) String lieuSoutenance) {
+        try {
+            LocalTime heure = heureSoutenance != null ? heureSoutenance : LocalTime.of(9, 0);
+            return ResponseEntity.ok(soutenanceService.verifierConflits(id, dateSoutenance, heure, lieuSoutenance));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Prochains créneaux libres pour la salle et tout le jury
+     * GET /api/soutenances/{id}/creneaux-libres?aPartirDe=2025-06-01&lieuSoutenance=Amphi A&nombre=3
+     */
+    @GetMapping("/{id}/creneaux-libres")
+    public ResponseEntity<?> proposerCreneauxLibres(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate aPartirDe,
+            @RequestParam(required = false) String lieuSoutenance,
+            @RequestParam(defaultValue = "3") int nombre) {
+        try {
+            return ResponseEntity.ok(soutenanceService.proposerCreneauxLibres(id, aPartirDe, lieuSoutenance, nombre));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -252,9 +443,10 @@ public class SoutenanceController {
     public ResponseEntity<?> refuserPlanification(@PathVariable Long id, @RequestBody Map<String, String> payload) {
         try {
             String commentaire = payload.get("commentaire");
-            return ResponseEntity.ok(soutenanceService.refuserPlanification(id, commentaire));
+            return ResponseEntity.ok(concurrenceOptimiste.uneFois("refuserPlanification",
+                    () -> soutenanceService.refuserPlanification(id, commentaire)));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
         }
     }
 
@@ -264,18 +456,20 @@ public class SoutenanceController {
             Double note = body.get("note") != null ? ((Number) body.get("note")).doubleValue() : null;
             String mention = (String) body.get("mention");
             Boolean felicitations = (Boolean) body.get("felicitations");
-            return ResponseEntity.ok(soutenanceService.enregistrerResultat(id, note, mention, felicitations));
+            return ResponseEntity.ok(concurrenceOptimiste.uneFois("enregistrerResultat",
+                    () -> soutenanceService.enregistrerResultat(id, note, mention, felicitations)));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
         }
     }
 
     @PutMapping("/{id}/rejeter")
     public ResponseEntity<?> rejeterSoutenance(@PathVariable Long id, @RequestBody Map<String, String> body) {
         try {
-            return ResponseEntity.ok(soutenanceService.rejeterSoutenance(id, body.get("motif")));
+            return ResponseEntity.ok(concurrenceOptimiste.uneFois("rejeterSoutenance",
+                    () -> soutenanceService.rejeterSoutenance(id, body.get("motif"))));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
         }
     }
 
@@ -284,10 +478,21 @@ public class SoutenanceController {
         try {
             Boolean avisFavorable = (Boolean) body.get("avisFavorable");
             String commentaire = (String) body.get("commentaire");
-            return ResponseEntity.ok(soutenanceService.soumettreRapportRapporteur(soutenanceId, membreJuryId, avisFavorable, commentaire));
+            return ResponseEntity.ok(concurrenceOptimiste.uneFois("soumettreRapportRapporteur",
+                    () -> soutenanceService.soumettreRapportRapporteur(soutenanceId, membreJuryId, avisFavorable, commentaire)));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return erreur(e);
+        }
+    }
+
+    /**
+     * 409 si la soutenance a été modifiée en parallèle (conflit de version), 400 sinon
+     */
+    private ResponseEntity<?> erreur(RuntimeException e) {
+        if (e instanceof ConflitConcurrentException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         }
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
     }
 
     @GetMapping("/test")
@@ -1,27 +1,45 @@
 package ma.enset.soutenanceservice.controllers;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import ma.enset.soutenanceservice.services.FileStorageService;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
-import java.net.MalformedURLException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/soutenances/files")
 @CrossOrigin(origins = "*")
+@RequiredArgsConstructor
 @Slf4j
 public class SoutenanceFileController {
 
-    // Dossier racine des uploads (relatif au répertoire de travail du service)
-    private final Path rootLocation = Paths.get("uploads/soutenances");
+    // Résout les noms stockés en base (adressés par contenu ou anciens noms à plat)
+    private final FileStorageService fileStorageService;
+
+    // Attributs Tomcat pour l'envoi par sendfile (connecteur NIO/NIO2)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
     /**
      * Télécharger un fichier par son nom
@@ -29,9 +47,10 @@ public class SoutenanceFileController {
      * Exemple: /api/soutenances/files/manuscrit_123_1703123456.pdf
      */
     @GetMapping("/{filename:.+}")
-    public ResponseEntity<Resource> getFile(@PathVariable String filename) {
+    public void getFile(@PathVariable String filename, ServletWebRequest webRequest,
+                        HttpServletRequest request, HttpServletResponse response) throws IOException {
         log.info("📥 Demande de téléchargement du fichier: {}", filename);
-        return serveFile(filename);
+        serveFile(filename, webRequest, request, response);
     }
 
     /**
@@ -39,7 +58,8 @@ public class SoutenanceFileController {
      * URL: GET /api/soutenances/files/download?path=uploads/soutenances/xxx.pdf
      */
     @GetMapping("/download")
-    public ResponseEntity<Resource> downloadFile(@RequestParam("path") String filePath) {
+    public void downloadFile(@RequestParam("path") String filePath, ServletWebRequest webRequest,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
         log.info("📥 Demande de téléchargement via path: {}", filePath);
 
         // Décoder l'URL si nécessaire
@@ -48,39 +68,151 @@ public class SoutenanceFileController {
         // Extraire juste le nom du fichier si c'est un chemin complet
         String filename = extractFilename(decodedPath);
 
-        return serveFile(filename);
+        serveFile(filename, webRequest, request, response);
     }
 
     /**
      * Méthode commune pour servir un fichier
+     * - GET conditionnel (If-None-Match / If-Modified-Since) → 304 à partir des métadonnées du fichier
+     * - Range: bytes=debut-fin → 206 (une seule plage ; If-Range respecté), 416 si hors limites
+     * - Corps envoyé par sendfile (Tomcat) si disponible, sinon par FileChannel.transferTo
+     * - Fichier archivé (soutenance terminée) : décompressé à la volée, mêmes en-têtes et même ETag
      */
-    private ResponseEntity<Resource> serveFile(String filename) {
+    private void serveFile(String filename, ServletWebRequest webRequest,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Nettoyer le nom de fichier (enlever le chemin si présent)
+        String cleanFilename = extractFilename(filename);
+        if (cleanFilename == null || cleanFilename.isEmpty()) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        // Résoudre le chemin (stockage chaud ou archive)
+        FileStorageService.Emplacement emplacement;
         try {
-            // Nettoyer le nom de fichier (enlever le chemin si présent)
-            String cleanFilename = extractFilename(filename);
+            emplacement = fileStorageService.localiser(cleanFilename);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        Path file = emplacement.chemin();
+        log.debug("📂 Chemin résolu: {}", file.toAbsolutePath());
 
-            // Résoudre le chemin
-            Path file = rootLocation.resolve(cleanFilename).normalize();
-            log.info("📂 Chemin résolu: {}", file.toAbsolutePath());
+        if (!Files.isRegularFile(file) || !Files.isReadable(file)) {
+            log.warn("❌ Fichier non trouvé ou non lisible: {}", file.toAbsolutePath());
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
 
-            Resource resource = new UrlResource(file.toUri());
+        // L'archive garde la date de modification d'origine : ETag identique dans les deux stockages
+        long length = emplacement.archive() ? fileStorageService.tailleDecompressee(file) : Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
 
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = determineContentType(cleanFilename);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return; // 304, ETag et Last-Modified déjà posés
+        }
 
-                log.info("✅ Fichier trouvé: {} (type: {})", cleanFilename, contentType);
+        String contentType = determineContentType(cleanFilename);
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + cleanFilename + "\"");
 
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
-                log.warn("❌ Fichier non trouvé ou non lisible: {}", file.toAbsolutePath());
-                return ResponseEntity.notFound().build();
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && length > 0 && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
             }
-        } catch (MalformedURLException e) {
-            log.error("❌ URL malformée pour le fichier: {}", filename, e);
-            return ResponseEntity.badRequest().build();
+            // Plusieurs plages (multipart/byteranges) : rare côté navigateurs, on renvoie le fichier entier
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                try {
+                    start = range.getRangeStart(length);
+                    end = range.getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    start = -1;
+                }
+                if (start < 0 || start >= length || end < start) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = length == 0 ? 0 : end - start + 1;
+        response.setContentLengthLong(count);
+        log.info("✅ Fichier servi: {} (type: {}, octets {}-{}/{})", cleanFilename, contentType, start, end, length);
+
+        if (HttpMethod.HEAD.matches(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (emplacement.archive()) {
+            try (InputStream in = fileStorageService.ouvrirArchive(file)) {
+                in.skipNBytes(start);
+                copyRange(in, response.getOutputStream(), count);
+            }
+            return;
+        }
+
+        // Zéro-copie : Tomcat envoie le fichier via sendfile après le retour du contrôleur,
+        // sans passer par le heap ni bloquer le thread servlet pendant la copie
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    private void copyRange(InputStream in, OutputStream out, long count) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = count;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) break;
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    /**
+     * If-Range : la plage ne s'applique que si le fichier n'a pas changé depuis la copie partielle du client
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            long ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return ifRangeDate != -1 && lastModified / 1000 <= ifRangeDate / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
         }
     }
 
@@ -0,0 +1,23 @@
+package ma.enset.soutenanceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Conflit détecté lors de la planification : la salle ou un membre du jury
+ * est déjà pris par une autre soutenance sur le créneau demandé.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConflitPlanificationDTO {
+
+    private String type;        // SALLE ou JURY
+    private String ressource;   // lieu ou email du membre
+    private Long soutenanceId;  // soutenance déjà planifiée
+    private LocalDateTime debut;
+    private LocalDateTime fin;
+}
@@ -0,0 +1,33 @@
+package ma.enset.soutenanceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.enset.soutenanceservice.enums.RoleJury;
+
+import java.util.List;
+
+/**
+ * Membre de jury proposé pour une soutenance, avec son score de pertinence
+ * et le nombre de soutenances en cours auxquelles il participe déjà.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JuryRecommandationDTO {
+
+    private Long juryDisponibleId;
+    private String nom;
+    private String prenom;
+    private String email;
+    private String etablissement;
+    private String grade;
+    private String specialite;
+    private RoleJury role;
+
+    private double score;
+    private long chargeActuelle;
+    private List<String> termesCommuns;
+}
@@ -0,0 +1,27 @@
+package ma.enset.soutenanceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.enset.soutenanceservice.enums.RoleJury;
+
+/**
+ * Vue "jury" d'une soutenance : un membre, construit par projection JPQL (pas d'entité ni de proxy).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MembreJuryDTO {
+
+    private Long id;
+    private RoleJury role;
+    private String nom;
+    private String prenom;
+    private String email;
+    private String etablissement;
+    private String grade;
+    private String specialite;
+    private Boolean rapportSoumis;
+    private Boolean avisFavorable;
+    private String commentaireRapport;
+}
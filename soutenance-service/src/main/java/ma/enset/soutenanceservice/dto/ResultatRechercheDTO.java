@@ -0,0 +1,29 @@
+package ma.enset.soutenanceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.enset.soutenanceservice.enums.StatutSoutenance;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Thèse trouvée par la recherche plein texte, avec son score et les termes indexés qui ont correspondu.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultatRechercheDTO {
+
+    private Long soutenanceId;
+    private String titreThese;
+    private String motsCles;
+    private StatutSoutenance statut;
+    private LocalDate dateSoutenance;
+
+    private double score;
+    private List<String> termesTrouves;
+}
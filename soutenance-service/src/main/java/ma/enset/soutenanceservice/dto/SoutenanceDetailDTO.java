@@ -0,0 +1,88 @@
+package ma.enset.soutenanceservice.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.enset.soutenanceservice.entities.Prerequis;
+import ma.enset.soutenanceservice.enums.StatutSoutenance;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vue "détail" d'une soutenance : colonnes lues par projection JPQL, jury par une seconde projection,
+ * doctorant et directeur via le cache utilisateurs. Mêmes noms de champs que l'entité.
+ */
+@Data
+@NoArgsConstructor
+public class SoutenanceDetailDTO {
+
+    private Long id;
+    private Long version;
+    private Long doctorantId;
+    private Long directeurId;
+    private StatutSoutenance statut;
+    private String titreThese;
+    private String resume;
+    private String motsCles;
+    private Prerequis prerequis;
+    private String cheminManuscrit;
+    private String cheminRapportAntiPlagiat;
+    private String cheminRapportPublications;
+    private String cheminAutorisation;
+    private LocalDate dateSoutenance;
+    private LocalTime heureSoutenance;
+    private String lieuSoutenance;
+    private Double noteFinale;
+    private String mention;
+    private Boolean felicitationsJury;
+    private String commentaireDirecteur;
+    private String commentaireAdmin;
+    private LocalDateTime dateAutorisation;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    // Renseignés après la projection
+    private UserDTO doctorantInfo;
+    private UserDTO directeurInfo;
+    private List<MembreJuryDTO> membresJury = new ArrayList<>();
+
+    // Constructeur utilisé par la projection JPQL
+    public SoutenanceDetailDTO(Long id, Long version, Long doctorantId, Long directeurId, StatutSoutenance statut,
+                               String titreThese, String resume, String motsCles,
+                               Integer nombreArticlesQ1Q2, Integer nombreConferences, Integer heuresFormation,
+                               Boolean prerequisValides,
+                               String cheminManuscrit, String cheminRapportAntiPlagiat,
+                               String cheminRapportPublications, String cheminAutorisation,
+                               LocalDate dateSoutenance, LocalTime heureSoutenance, String lieuSoutenance,
+                               Double noteFinale, String mention, Boolean felicitationsJury,
+                               String commentaireDirecteur, String commentaireAdmin, LocalDateTime dateAutorisation,
+                               LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.version = version;
+        this.doctorantId = doctorantId;
+        this.directeurId = directeurId;
+        this.statut = statut;
+        this.titreThese = titreThese;
+        this.resume = resume;
+        this.motsCles = motsCles;
+        this.prerequis = new Prerequis(nombreArticlesQ1Q2, nombreConferences, heuresFormation, prerequisValides);
+        this.cheminManuscrit = cheminManuscrit;
+        this.cheminRapportAntiPlagiat = cheminRapportAntiPlagiat;
+        this.cheminRapportPublications = cheminRapportPublications;
+        this.cheminAutorisation = cheminAutorisation;
+        this.dateSoutenance = dateSoutenance;
+        this.heureSoutenance = heureSoutenance;
+        this.lieuSoutenance = lieuSoutenance;
+        this.noteFinale = noteFinale;
+        this.mention = mention;
+        this.felicitationsJury = felicitationsJury;
+        this.commentaireDirecteur = commentaireDirecteur;
+        this.commentaireAdmin = commentaireAdmin;
+        this.dateAutorisation = dateAutorisation;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+}
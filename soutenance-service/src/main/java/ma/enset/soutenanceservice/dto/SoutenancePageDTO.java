@@ -0,0 +1,21 @@
+package ma.enset.soutenanceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Page d'une liste paginée par curseur (keyset).
+ * nextCursor est à renvoyer tel quel pour obtenir la page suivante ; null quand il n'y en a plus.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SoutenancePageDTO {
+
+    private List<SoutenanceSummaryDTO> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
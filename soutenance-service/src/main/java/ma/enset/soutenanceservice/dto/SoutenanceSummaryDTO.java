@@ -0,0 +1,51 @@
+package ma.enset.soutenanceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.enset.soutenanceservice.enums.StatutSoutenance;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Vue "liste" d'une soutenance : uniquement les colonnes affichées dans les tableaux,
+ * sans le jury ni les chemins de fichiers. Construite directement par projection JPQL.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SoutenanceSummaryDTO {
+
+    private Long id;
+    private Long doctorantId;
+    private Long directeurId;
+    private String titreThese;
+    private StatutSoutenance statut;
+    private LocalDate dateSoutenance;
+    private LocalTime heureSoutenance;
+    private String lieuSoutenance;
+    private String mention;
+    private LocalDateTime createdAt;
+
+    // Renseignés après coup via le cache utilisateurs
+    private String doctorantNomComplet;
+    private String directeurNomComplet;
+
+    // Constructeur utilisé par la projection JPQL
+    public SoutenanceSummaryDTO(Long id, Long doctorantId, Long directeurId, String titreThese,
+                                StatutSoutenance statut, LocalDate dateSoutenance, LocalTime heureSoutenance,
+                                String lieuSoutenance, String mention, LocalDateTime createdAt) {
+        this.id = id;
+        this.doctorantId = doctorantId;
+        this.directeurId = directeurId;
+        this.titreThese = titreThese;
+        this.statut = statut;
+        this.dateSoutenance = dateSoutenance;
+        this.heureSoutenance = heureSoutenance;
+        this.lieuSoutenance = lieuSoutenance;
+        this.mention = mention;
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,25 @@
+package ma.enset.soutenanceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Delta poussé sur le flux SSE à chaque changement de statut d'une soutenance
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatutChangeDTO {
+
+    private Long soutenanceId;
+    private Long doctorantId;
+    private Long directeurId;
+    private String ancienStatut;
+    private String nouveauStatut;
+    private LocalDateTime date;
+}
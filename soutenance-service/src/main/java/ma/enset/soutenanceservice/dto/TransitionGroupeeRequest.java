@@ -0,0 +1,34 @@
+package ma.enset.soutenanceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.enset.soutenanceservice.enums.ActionGroupee;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transition appliquée à plusieurs soutenances en une requête.
+ * Pour ENREGISTRER_RESULTAT, les ids et résultats viennent de {@code resultats}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransitionGroupeeRequest {
+
+    private ActionGroupee action;
+    private List<Long> ids = new ArrayList<>();
+    private String commentaire;
+    private List<Resultat> resultats = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Resultat {
+        private Long id;
+        private Double note;
+        private String mention;
+        private Boolean felicitations;
+    }
+}
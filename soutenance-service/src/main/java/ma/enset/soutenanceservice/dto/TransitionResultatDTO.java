@@ -0,0 +1,28 @@
+package ma.enset.soutenanceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Résultat d'une transition groupée pour une soutenance
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransitionResultatDTO {
+
+    private Long id;
+    private boolean succes;
+    private String ancienStatut;
+    private String nouveauStatut;
+    private String erreur;
+
+    public static TransitionResultatDTO succes(Long id, String ancienStatut, String nouveauStatut) {
+        return new TransitionResultatDTO(id, true, ancienStatut, nouveauStatut, null);
+    }
+
+    public static TransitionResultatDTO echec(Long id, String ancienStatut, String erreur) {
+        return new TransitionResultatDTO(id, false, ancienStatut, null, erreur);
+    }
+}
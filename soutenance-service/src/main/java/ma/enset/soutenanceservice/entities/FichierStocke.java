@@ -0,0 +1,42 @@
+package ma.enset.soutenanceservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fichier stocké par contenu (SHA-256) : un même manuscrit soumis plusieurs fois
+ * n'est écrit qu'une fois sur disque, nbReferences compte les soutenances qui le pointent.
+ */
+@Entity
+@Table(name = "fichiers_stockes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FichierStocke {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String sha256;
+
+    // Nom stocké en base dans Soutenance (ex: "<sha256>.pdf")
+    @Column(name = "nom_fichier", nullable = false)
+    private String nomFichier;
+
+    @Column(nullable = false)
+    private Long taille;
+
+    @Column(name = "nb_references", nullable = false)
+    private Integer nbReferences = 0;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import ma.enset.soutenanceservice.enums.RoleJury;
+import ma.enset.soutenanceservice.services.JuryDisponibleListener;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -18,6 +19,7 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "jurys_disponibles")
+@EntityListeners(JuryDisponibleListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
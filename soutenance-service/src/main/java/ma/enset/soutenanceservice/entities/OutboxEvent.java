@@ -0,0 +1,71 @@
+package ma.enset.soutenanceservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Événement Kafka en attente d'envoi (transactional outbox).
+ * Écrit dans la même transaction que la modification de la soutenance,
+ * puis publié par {@link ma.enset.soutenanceservice.services.OutboxRelay}.
+ * L'id (auto-incrémenté) donne l'ordre de publication.
+ *
+ * Un relais réserve l'événement (claimed_by / claimed_until) avant l'envoi ; après un échec,
+ * claimed_until sert de date de reprise. Un événement mis de côté (parked_at) n'est plus retenté.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_pending", columnList = "published_at, parked_at, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    // Clé Kafka (id de la soutenance) : même partition => ordre conservé par soutenance
+    @Column(name = "aggregate_id", nullable = false)
+    private String aggregateId;
+
+    // Classe de l'événement, pour le re-sérialiser à l'identique (type headers)
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+
+    // Instance du relais qui a réservé l'événement
+    @Column(name = "claimed_by", length = 100)
+    private String claimedBy;
+
+    // Fin de la réservation (ou date de la prochaine tentative après un échec)
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    // Lettre morte : payload illisible ou nombre max de tentatives atteint
+    @Column(name = "parked_at")
+    private LocalDateTime parkedAt;
+}
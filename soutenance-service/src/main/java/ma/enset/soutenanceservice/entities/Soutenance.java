@@ -8,9 +8,11 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import ma.enset.soutenanceservice.dto.UserDTO;
 import ma.enset.soutenanceservice.enums.StatutSoutenance;
 import ma.enset.soutenanceservice.enums.RoleJury;
+import ma.enset.soutenanceservice.services.SoutenanceIndexListener;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -19,16 +21,32 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "soutenances")
+// Plan de chargement "avec jury" : une seule requête (LEFT JOIN) au lieu d'un SELECT par soutenance
+@NamedEntityGraph(name = Soutenance.GRAPH_JURY, attributeNodes = @NamedAttributeNode("membresJury"))
+@Table(name = "soutenances", indexes = {
+        // Pagination par curseur (createdAt, id) et filtres de la liste
+        @Index(name = "idx_soutenances_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_soutenances_statut_created", columnList = "statut, created_at"),
+        @Index(name = "idx_soutenances_directeur_created", columnList = "directeur_id, created_at")
+})
+@EntityListeners(SoutenanceIndexListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Soutenance {
 
+    public static final String GRAPH_JURY = "Soutenance.jury";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Verrouillage optimiste : une transition sur un état périmé échoue au lieu d'écraser l'autre
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @Column(name = "doctorant_id", nullable = false)
     private Long doctorantId;
 
@@ -128,6 +146,13 @@ public class Soutenance {
         return prerequis != null && prerequis.verifierPrerequisMinimaux();
     }
 
+    /**
+     * Autorisation administrative déjà accordée : la ré-autoriser est sans effet
+     */
+    public boolean autorisationAccordee() {
+        return statut == StatutSoutenance.AUTORISEE && dateAutorisation != null;
+    }
+
     public boolean juryEstComplet() {
         if (membresJury == null || membresJury.isEmpty()) return false;
         long nbPresidents = membresJury.stream().filter(m -> m.getRole() == RoleJury.PRESIDENT).count();
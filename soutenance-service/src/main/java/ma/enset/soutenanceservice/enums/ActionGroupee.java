@@ -0,0 +1,7 @@
+package ma.enset.soutenanceservice.enums;
+
+public enum ActionGroupee {
+    AUTORISER,              // PREREQUIS_VALIDES → AUTORISEE (sans effet si déjà autorisée)
+    VALIDER_JURY,           // JURY_PROPOSE → AUTORISEE
+    ENREGISTRER_RESULTAT    // * → TERMINEE
+}
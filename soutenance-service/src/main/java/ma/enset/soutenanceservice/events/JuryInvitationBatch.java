@@ -0,0 +1,28 @@
+package ma.enset.soutenanceservice.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Invitations de tout le jury d'une soutenance, stockées comme une seule entrée d'outbox
+ * et publiées dans une seule transaction Kafka (tout ou rien).
+ * N'est pas envoyé tel quel : chaque JuryInvitationEvent part comme un message distinct.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JuryInvitationBatch {
+
+    private Long soutenanceId;
+    // Pour compléter doctorantNom au moment de l'envoi (OutboxEnricher)
+    private Long doctorantId;
+
+    @Builder.Default
+    private List<JuryInvitationEvent> invitations = new ArrayList<>();
+}
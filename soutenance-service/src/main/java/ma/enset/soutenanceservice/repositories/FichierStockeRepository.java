@@ -0,0 +1,47 @@
+package ma.enset.soutenanceservice.repositories;
+
+import jakarta.persistence.LockModeType;
+import ma.enset.soutenanceservice.entities.FichierStocke;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface FichierStockeRepository extends JpaRepository<FichierStocke, Long> {
+
+    Optional<FichierStocke> findBySha256(String sha256);
+
+    /**
+     * Lecture verrouillée : un envoi concurrent du même contenu attend la fin de la transaction
+     * (verrou de ligne, ou verrou d'intervalle InnoDB si la ligne n'existe pas)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM FichierStocke f WHERE f.sha256 = :sha256")
+    Optional<FichierStocke> findBySha256ForUpdate(@Param("sha256") String sha256);
+
+    /**
+     * Ajoute une référence au contenu en une seule instruction : création de la ligne au premier
+     * envoi, sinon incrément atomique. Deux premiers envois concurrents du même contenu se
+     * sérialisent sur la contrainte unique (pas de doublon, pas de référence perdue).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO fichiers_stockes (sha256, nom_fichier, taille, nb_references, created_at) " +
+            "VALUES (:sha256, :nomFichier, :taille, 1, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE nb_references = nb_references + 1", nativeQuery = true)
+    int ajouterReference(@Param("sha256") String sha256,
+                         @Param("nomFichier") String nomFichier,
+                         @Param("taille") long taille);
+
+    @Modifying
+    @Query("UPDATE FichierStocke f SET f.nbReferences = f.nbReferences - 1 WHERE f.sha256 = :sha256 AND f.nbReferences > 0")
+    int decrementerReferences(@Param("sha256") String sha256);
+
+    @Modifying
+    @Query("DELETE FROM FichierStocke f WHERE f.sha256 = :sha256 AND f.nbReferences <= 0")
+    int supprimerSiNonReference(@Param("sha256") String sha256);
+}
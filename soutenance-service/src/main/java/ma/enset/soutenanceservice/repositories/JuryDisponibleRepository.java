@@ -3,8 +3,10 @@ package ma.enset.soutenanceservice.repositories;
 import ma.enset.soutenanceservice.entities.JuryDisponible;
 import ma.enset.soutenanceservice.enums.RoleJury;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -24,4 +26,15 @@ public interface JuryDisponibleRepository extends JpaRepository<JuryDisponible,
      * Vérifier si un email existe déjà
      */
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    /**
+     * Lignes créées ou modifiées depuis une date (synchronisation incrémentale de l'index)
+     */
+    List<JuryDisponible> findByUpdatedAtAfter(LocalDateTime date);
+
+    /**
+     * Ids existants (détection des suppressions faites hors de l'application)
+     */
+    @Query("SELECT j.id FROM JuryDisponible j")
+    List<Long> findAllIds();
+}
@@ -2,9 +2,13 @@ package ma.enset.soutenanceservice.repositories;
 
 import ma.enset.soutenanceservice.entities.MembreJury;
 import ma.enset.soutenanceservice.enums.RoleJury;
+import ma.enset.soutenanceservice.enums.StatutSoutenance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -31,4 +35,14 @@ public interface MembreJuryRepository extends JpaRepository<MembreJury, Long> {
      * Trouver les membres du jury par rôle (tous)
      */
     List<MembreJury> findByRole(RoleJury role);
-}
\ No newline at end of file
+
+    /**
+     * Charge des membres : nombre de participations par email (minuscule) aux soutenances
+     * dont le statut n'est pas dans {@code statutsClos}. Retourne des paires [email, count].
+     */
+    @Query("SELECT LOWER(m.email), COUNT(m) FROM MembreJury m " +
+            "WHERE LOWER(m.email) IN :emails AND m.soutenance.statut NOT IN :statutsClos " +
+            "GROUP BY LOWER(m.email)")
+    List<Object[]> countChargeByEmails(@Param("emails") Collection<String> emails,
+                                       @Param("statutsClos") Collection<StatutSoutenance> statutsClos);
+}
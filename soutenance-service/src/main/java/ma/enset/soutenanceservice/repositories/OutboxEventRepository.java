@@ -0,0 +1,64 @@
+package ma.enset.soutenanceservice.repositories;
+
+import jakarta.persistence.LockModeType;
+import ma.enset.soutenanceservice.entities.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Prochain lot à publier, dans l'ordre d'écriture, événements réservés compris (ils bloquent
+     * les suivants de leur soutenance). Le verrou n'est tenu que le temps de la réservation :
+     * les envois Kafka se font ensuite, sans transaction ouverte.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM OutboxEvent o WHERE o.publishedAt IS NULL AND o.parkedAt IS NULL ORDER BY o.id")
+    List<OutboxEvent> findPendingForUpdate(Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.claimedBy = :instance, o.claimedUntil = :jusqua WHERE o.id IN :ids")
+    int reserver(@Param("ids") Collection<Long> ids, @Param("instance") String instance,
+                 @Param("jusqua") LocalDateTime jusqua);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.publishedAt = :date, o.claimedUntil = NULL WHERE o.id IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("date") LocalDateTime date);
+
+    /**
+     * Échec d'envoi : prochaine tentative à {@code reprise}, ou lettre morte si {@code parkedAt} est renseigné
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.attempts = :attempts, o.lastError = :erreur, " +
+            "o.claimedUntil = :reprise, o.parkedAt = :parkedAt WHERE o.id = :id")
+    int enregistrerEchec(@Param("id") Long id, @Param("attempts") int attempts, @Param("erreur") String erreur,
+                         @Param("reprise") LocalDateTime reprise, @Param("parkedAt") LocalDateTime parkedAt);
+
+    /**
+     * Événements réservés mais non envoyés (bloqués derrière un échec) : rendus au prochain passage
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.claimedBy = NULL, o.claimedUntil = NULL WHERE o.id IN :ids")
+    int liberer(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Purge des événements publiés depuis longtemps
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxEvent o WHERE o.publishedAt IS NOT NULL AND o.publishedAt < :date")
+    int deletePublishedBefore(@Param("date") LocalDateTime date);
+
+    long countByPublishedAtIsNull();
+
+    long countByParkedAtIsNotNull();
+}
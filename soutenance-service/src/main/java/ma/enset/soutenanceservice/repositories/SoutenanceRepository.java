@@ -1,21 +1,127 @@
 package ma.enset.soutenanceservice.repositories;
 
+import ma.enset.soutenanceservice.dto.MembreJuryDTO;
+import ma.enset.soutenanceservice.dto.SoutenanceDetailDTO;
+import ma.enset.soutenanceservice.dto.SoutenanceSummaryDTO;
 import ma.enset.soutenanceservice.entities.Soutenance;
 import ma.enset.soutenanceservice.enums.StatutSoutenance;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface SoutenanceRepository extends JpaRepository<Soutenance, Long> {
 
+    // Projections de lecture : seules les colonnes de chaque vue sont lues, sans entité gérée
+    String SELECT_SUMMARY = "SELECT new ma.enset.soutenanceservice.dto.SoutenanceSummaryDTO(" +
+            "s.id, s.doctorantId, s.directeurId, s.titreThese, s.statut, " +
+            "s.dateSoutenance, s.heureSoutenance, s.lieuSoutenance, s.mention, s.createdAt) " +
+            "FROM Soutenance s ";
+
     List<Soutenance> findByDoctorantId(Long doctorantId);
 
     List<Soutenance> findByDirecteurId(Long directeurId);
 
     List<Soutenance> findByStatut(StatutSoutenance statut);
 
+    /**
+     * Nombre de soutenances par statut : paires [statut, count]
+     */
+    @Query("SELECT s.statut, COUNT(s) FROM Soutenance s GROUP BY s.statut")
+    List<Object[]> countGroupByStatut();
+
     Optional<Soutenance> findByDoctorantIdAndStatut(Long doctorantId, StatutSoutenance statut);
-}
\ No newline at end of file
+
+    /**
+     * Fichiers des soutenances dans ce statut, soutenues avant la date :
+     * [manuscrit, rapport anti-plagiat, rapport publications, autorisation]
+     */
+    @Query("SELECT s.cheminManuscrit, s.cheminRapportAntiPlagiat, s.cheminRapportPublications, s.cheminAutorisation " +
+            "FROM Soutenance s WHERE s.statut = :statut AND s.dateSoutenance < :avant")
+    List<Object[]> findCheminsByStatutAndDateSoutenanceBefore(@Param("statut") StatutSoutenance statut,
+                                                             @Param("avant") LocalDate avant);
+
+    /**
+     * Le fichier est-il encore utilisé par une soutenance hors de ce statut, ou soutenue depuis la date ?
+     * (fichiers partagés par contenu : ils ne sont archivés que si plus aucune soutenance active ne les pointe)
+     */
+    @Query("SELECT COUNT(s) > 0 FROM Soutenance s " +
+            "WHERE (s.statut <> :statut OR s.dateSoutenance IS NULL OR s.dateSoutenance >= :avant) " +
+            "AND (s.cheminManuscrit = :chemin OR s.cheminRapportAntiPlagiat = :chemin " +
+            "OR s.cheminRapportPublications = :chemin OR s.cheminAutorisation = :chemin)")
+    boolean isCheminUtiliseHorsArchive(@Param("chemin") String chemin,
+                                       @Param("statut") StatutSoutenance statut,
+                                       @Param("avant") LocalDate avant);
+
+    // ========================================================
+    // Variantes "avec jury" (entity graph) : à utiliser quand membresJury
+    // est lu ou sérialisé, pour éviter un SELECT supplémentaire par soutenance
+    // ========================================================
+
+    @EntityGraph(Soutenance.GRAPH_JURY)
+    Optional<Soutenance> findWithJuryById(Long id);
+
+    @EntityGraph(Soutenance.GRAPH_JURY)
+    List<Soutenance> findWithJuryByStatut(StatutSoutenance statut);
+
+    /**
+     * Pagination par curseur (keyset) sur (createdAt DESC, id DESC), filtres optionnels (null = ignoré).
+     * Le curseur (afterCreatedAt, afterId) est la dernière ligne de la page précédente ;
+     * la taille de page est donnée par le Pageable (toujours page 0, pas de COUNT).
+     */
+    @Query(SELECT_SUMMARY +
+            "WHERE (:statut IS NULL OR s.statut = :statut) " +
+            "AND (:directeurId IS NULL OR s.directeurId = :directeurId) " +
+            "AND (:dateDebut IS NULL OR s.createdAt >= :dateDebut) " +
+            "AND (:dateFin IS NULL OR s.createdAt < :dateFin) " +
+            "AND (:afterCreatedAt IS NULL OR s.createdAt < :afterCreatedAt " +
+            "     OR (s.createdAt = :afterCreatedAt AND s.id < :afterId)) " +
+            "ORDER BY s.createdAt DESC, s.id DESC")
+    List<SoutenanceSummaryDTO> findSummariesAfter(@Param("statut") StatutSoutenance statut,
+                                                  @Param("directeurId") Long directeurId,
+                                                  @Param("dateDebut") LocalDateTime dateDebut,
+                                                  @Param("dateFin") LocalDateTime dateFin,
+                                                  @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                                  @Param("afterId") Long afterId,
+                                                  Pageable pageable);
+
+    // ========================================================
+    // Vues de lecture (résumé, détail, jury)
+    // ========================================================
+
+    @Query(SELECT_SUMMARY + "ORDER BY s.createdAt DESC, s.id DESC")
+    List<SoutenanceSummaryDTO> findAllSummaries();
+
+    @Query(SELECT_SUMMARY + "WHERE s.doctorantId = :doctorantId ORDER BY s.createdAt DESC, s.id DESC")
+    List<SoutenanceSummaryDTO> findSummariesByDoctorantId(@Param("doctorantId") Long doctorantId);
+
+    @Query(SELECT_SUMMARY + "WHERE s.directeurId = :directeurId ORDER BY s.createdAt DESC, s.id DESC")
+    List<SoutenanceSummaryDTO> findSummariesByDirecteurId(@Param("directeurId") Long directeurId);
+
+    @Query(SELECT_SUMMARY + "WHERE s.statut = :statut ORDER BY s.createdAt DESC, s.id DESC")
+    List<SoutenanceSummaryDTO> findSummariesByStatut(@Param("statut") StatutSoutenance statut);
+
+    @Query("SELECT new ma.enset.soutenanceservice.dto.SoutenanceDetailDTO(" +
+            "s.id, s.version, s.doctorantId, s.directeurId, s.statut, s.titreThese, s.resume, s.motsCles, " +
+            "s.prerequis.nombreArticlesQ1Q2, s.prerequis.nombreConferences, s.prerequis.heuresFormation, " +
+            "s.prerequis.prerequisValides, " +
+            "s.cheminManuscrit, s.cheminRapportAntiPlagiat, s.cheminRapportPublications, s.cheminAutorisation, " +
+            "s.dateSoutenance, s.heureSoutenance, s.lieuSoutenance, s.noteFinale, s.mention, s.felicitationsJury, " +
+            "s.commentaireDirecteur, s.commentaireAdmin, s.dateAutorisation, s.createdAt, s.updatedAt) " +
+            "FROM Soutenance s WHERE s.id = :id")
+    Optional<SoutenanceDetailDTO> findDetailById(@Param("id") Long id);
+
+    @Query("SELECT new ma.enset.soutenanceservice.dto.MembreJuryDTO(" +
+            "m.id, m.role, m.nom, m.prenom, m.email, m.etablissement, m.grade, m.specialite, " +
+            "m.rapportSoumis, m.avisFavorable, m.commentaireRapport) " +
+            "FROM MembreJury m WHERE m.soutenance.id = :soutenanceId ORDER BY m.id")
+    List<MembreJuryDTO> findMembresJuryBySoutenanceId(@Param("soutenanceId") Long soutenanceId);
+}
@@ -0,0 +1,141 @@
+package ma.enset.soutenanceservice.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.enums.StatutSoutenance;
+import ma.enset.soutenanceservice.repositories.SoutenanceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Archivage (stockage froid) des fichiers des soutenances terminées.
+ *
+ * Chaque nuit, les manuscrits et rapports des soutenances TERMINEE plus anciennes que {@code age-minimum}
+ * sont compressés vers uploads/archives/soutenances et retirés du répertoire chaud.
+ * Un fichier partagé (même contenu) avec une soutenance encore active reste en place.
+ *
+ * Pour ne pas concurrencer les I/O de la journée, le job lit au plus {@code debit-max} par seconde,
+ * s'arrête à {@code fin-fenetre} et traite au plus {@code max-fichiers} par exécution ;
+ * le reste est repris la nuit suivante. Le job tourne des heures : il s'exécute sur son propre thread,
+ * la tâche planifiée ne fait que le lancer (le planificateur Spring n'a qu'un thread, partagé avec
+ * le relais de l'outbox, les heartbeats SSE et les réconciliations).
+ */
+@Service
+@Slf4j
+public class ArchivageFichiersService {
+
+    private final SoutenanceRepository soutenanceRepository;
+    private final FileStorageService fileStorageService;
+    private final Duration ageMinimum;
+    private final LocalTime finFenetre;
+    private final long debitMax;
+    private final int maxFichiers;
+    // Un seul thread : deux passages ne se chevauchent jamais
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("archivage-fichiers").factory());
+
+    public ArchivageFichiersService(SoutenanceRepository soutenanceRepository,
+                                    FileStorageService fileStorageService,
+                                    @Value("${archivage.age-minimum:180d}") Duration ageMinimum,
+                                    @Value("${archivage.fin-fenetre:06:00}") LocalTime finFenetre,
+                                    @Value("${archivage.debit-max:5MB}") DataSize debitMax,
+                                    @Value("${archivage.max-fichiers:500}") int maxFichiers) {
+        this.soutenanceRepository = soutenanceRepository;
+        this.fileStorageService = fileStorageService;
+        this.ageMinimum = ageMinimum;
+        this.finFenetre = finFenetre;
+        this.debitMax = Math.max(1, debitMax.toBytes());
+        this.maxFichiers = maxFichiers;
+    }
+
+    @Scheduled(cron = "${archivage.cron:0 0 1 * * *}")
+    public void archiver() {
+        executor.execute(() -> {
+            try {
+                archiverFichiers();
+            } catch (Exception e) {
+                log.error("❌ Échec de l'archivage des fichiers: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    @PreDestroy
+    void fermer() {
+        executor.shutdownNow();
+    }
+
+    private void archiverFichiers() {
+        LocalDateTime debut = LocalDateTime.now();
+        LocalDateTime echeance = debut.toLocalDate().atTime(finFenetre);
+        if (!echeance.isAfter(debut)) echeance = echeance.plusDays(1);
+
+        LocalDate avant = LocalDate.now().minusDays(ageMinimum.toDays());
+        Set<String> chemins = new LinkedHashSet<>();
+        for (Object[] ligne : soutenanceRepository.findCheminsByStatutAndDateSoutenanceBefore(StatutSoutenance.TERMINEE, avant)) {
+            for (Object chemin : ligne) {
+                if (chemin != null && !chemin.toString().isBlank()) chemins.add(chemin.toString());
+            }
+        }
+        if (chemins.isEmpty()) return;
+
+        Debit debit = new Debit();
+        int archives = 0;
+        long liberes = 0;
+        for (String chemin : chemins) {
+            if (Thread.currentThread().isInterrupted()) break;
+            if (archives >= maxFichiers || LocalDateTime.now().isAfter(echeance)) {
+                log.info("⏸️ Archivage interrompu (quota ou fin de fenêtre), reprise au prochain passage");
+                break;
+            }
+            if (soutenanceRepository.isCheminUtiliseHorsArchive(chemin, StatutSoutenance.TERMINEE, avant)) continue;
+            try {
+                long octets = fileStorageService.archiver(nomFichier(chemin), debit::consommer);
+                if (octets > 0) {
+                    archives++;
+                    liberes += octets;
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ Archivage impossible pour {}: {}", chemin, e.getMessage());
+            }
+        }
+        log.info("🗄️ Archivage terminé: {} fichiers, {} Mo libérés ({} s)",
+                archives, liberes / (1024 * 1024), Duration.between(debut, LocalDateTime.now()).toSeconds());
+    }
+
+    /**
+     * Nom stocké en base → nom attendu par le stockage (anciens enregistrements avec chemin complet)
+     */
+    private String nomFichier(String chemin) {
+        String nom = chemin.replace("\\", "/");
+        int index = nom.lastIndexOf("uploads/soutenances/");
+        return index >= 0 ? nom.substring(index + "uploads/soutenances/".length()) : nom;
+    }
+
+    /**
+     * Limitation de débit : après chaque bloc lu, pause si on est en avance sur debit-max
+     */
+    private final class Debit {
+
+        private final long debut = System.nanoTime();
+        private long octets;
+
+        void consommer(int lus) {
+            octets += lus;
+            long attendu = (long) (octets * 1e9 / debitMax);
+            long avance = attendu - (System.nanoTime() - debut);
+            if (avance > 0) LockSupport.parkNanos(avance);
+        }
+    }
+}
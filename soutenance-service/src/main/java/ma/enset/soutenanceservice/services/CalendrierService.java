@@ -0,0 +1,331 @@
+package ma.enset.soutenanceservice.services;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.entities.MembreJury;
+import ma.enset.soutenanceservice.entities.Soutenance;
+import ma.enset.soutenanceservice.enums.StatutSoutenance;
+import ma.enset.soutenanceservice.repositories.SoutenanceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static ma.enset.soutenanceservice.services.Transactions.apresCommit;
+
+/**
+ * Flux iCalendar (.ics) des soutenances planifiées : global, par utilisateur (doctorant, directeur)
+ * et par membre de jury (email).
+ *
+ * Chaque soutenance planifiée est gardée en mémoire sous forme de VEVENT déjà sérialisé. Le corps
+ * complet d'un flux est assemblé au premier abonné qui le demande puis mis en cache avec son ETag ;
+ * il n'est invalidé que lorsqu'une soutenance qui y figure est planifiée, modifiée ou quitte PLANIFIEE.
+ * Les interrogations périodiques des clients calendrier ne touchent donc ni la base ni le user-service.
+ */
+@Service
+@Slf4j
+public class CalendrierService {
+
+    public static final String GLOBAL = "*";
+
+    private static final DateTimeFormatter FORMAT_UTC = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter FORMAT_JOUR = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String CRLF = "\r\n";
+    // Longueur maximale d'une ligne iCalendar (RFC 5545 §3.1), en octets
+    private static final int LONGUEUR_LIGNE = 75;
+
+    private final SoutenanceRepository soutenanceRepository;
+    private final Duration dureeSoutenance;
+    private final ZoneId fuseau;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Evenement> evenements = new HashMap<>();
+    private final Map<String, Set<Long>> parAbonne = new HashMap<>();
+    // Corps sérialisés par clé de flux ; lus et invalidés sous le verrou
+    private final Map<String, Flux> cache = new ConcurrentHashMap<>();
+    // Mises à jour validées pendant une synchronisation (null hors synchronisation)
+    private List<Runnable> journal;
+
+    public CalendrierService(SoutenanceRepository soutenanceRepository,
+                             @Value("${planification.duree-soutenance:3h}") Duration dureeSoutenance,
+                             @Value("${calendrier.fuseau:Africa/Casablanca}") ZoneId fuseau) {
+        this.soutenanceRepository = soutenanceRepository;
+        this.dureeSoutenance = dureeSoutenance;
+        this.fuseau = fuseau;
+    }
+
+    public record Flux(byte[] contenu, String etag) {
+    }
+
+    private record Evenement(Long soutenanceId, LocalDateTime debut, Set<String> abonnes, String vevent) {
+    }
+
+    public static String cleUtilisateur(Long userId) {
+        return "user:" + userId;
+    }
+
+    public static String cleJury(String email) {
+        return "jury:" + email.trim().toLowerCase();
+    }
+
+    // ========================================================
+    // LECTURE
+    // ========================================================
+
+    public Flux getFlux(String cle) {
+        lock.readLock().lock();
+        try {
+            Flux flux = cache.get(cle);
+            if (flux == null) {
+                flux = generer(cle);
+                cache.putIfAbsent(cle, flux);
+            }
+            return flux;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Flux generer(String cle) {
+        List<Evenement> selection = (GLOBAL.equals(cle)
+                ? evenements.values().stream()
+                : parAbonne.getOrDefault(cle, Set.of()).stream().map(evenements::get).filter(Objects::nonNull))
+                .sorted(Comparator.comparing(Evenement::debut).thenComparing(Evenement::soutenanceId))
+                .toList();
+
+        StringBuilder ics = new StringBuilder(256 + selection.size() * 512);
+        ics.append("BEGIN:VCALENDAR").append(CRLF)
+                .append("VERSION:2.0").append(CRLF)
+                .append("PRODID:-//ENSET//Portail Doctorat//FR").append(CRLF)
+                .append("CALSCALE:GREGORIAN").append(CRLF)
+                .append("METHOD:PUBLISH").append(CRLF);
+        ligne(ics, "X-WR-CALNAME:" + texte("Soutenances de thèse"));
+        ics.append("REFRESH-INTERVAL;VALUE=DURATION:PT1H").append(CRLF);
+        selection.forEach(e -> ics.append(e.vevent()));
+        ics.append("END:VCALENDAR").append(CRLF);
+
+        byte[] contenu = ics.toString().getBytes(StandardCharsets.UTF_8);
+        return new Flux(contenu, "\"" + DigestUtils.md5DigestAsHex(contenu) + "\"");
+    }
+
+    // ========================================================
+    // MISE À JOUR (après commit)
+    // ========================================================
+
+    /**
+     * Appelé par le chemin de planification : (ré)écrit le VEVENT de la soutenance,
+     * ou le retire si elle n'est plus planifiée
+     */
+    public void mettreAJour(Soutenance soutenance) {
+        apresCommit(() -> {
+            // Sérialisé après commit : updatedAt (DTSTAMP) est alors celui écrit en base
+            Evenement evenement = evenement(soutenance);
+            Long id = soutenance.getId();
+            lock.writeLock().lock();
+            try {
+                if (evenement == null) retirerSansVerrou(id);
+                else remplacerSansVerrou(evenement);
+                journaliser(() -> {
+                    if (evenement == null) retirerSansVerrou(id);
+                    else remplacerSansVerrou(evenement);
+                });
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void retirer(Long soutenanceId) {
+        apresCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                retirerSansVerrou(soutenanceId);
+                journaliser(() -> retirerSansVerrou(soutenanceId));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Synchronisation depuis la base (démarrage + réconciliation) : seuls les flux
+     * dont une soutenance a réellement changé sont invalidés. Les mises à jour validées pendant
+     * la lecture de la base sont rejouées après, pour ne pas être écrasées par l'instantané.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${calendrier.reconciliation-ms:600000}",
+            fixedDelayString = "${calendrier.reconciliation-ms:600000}")
+    public synchronized void reconstruire() {
+        lock.writeLock().lock();
+        try {
+            journal = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Long, Evenement> planifiees = new HashMap<>();
+        try {
+            for (Soutenance s : soutenanceRepository.findWithJuryByStatut(StatutSoutenance.PLANIFIEE)) {
+                Evenement evenement = evenement(s);
+                if (evenement != null) planifiees.put(s.getId(), evenement);
+            }
+        } catch (Exception e) {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.warn("⚠️ Reconstruction du calendrier impossible: {}", e.getMessage());
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Long id : new HashSet<>(evenements.keySet())) {
+                if (!planifiees.containsKey(id)) retirerSansVerrou(id);
+            }
+            planifiees.values().forEach(this::remplacerSansVerrou);
+            journal.forEach(Runnable::run);
+            journal = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("🗓️ Calendrier des soutenances synchronisé: {} soutenances planifiées", planifiees.size());
+    }
+
+    private void journaliser(Runnable miseAJour) {
+        if (journal != null) journal.add(miseAJour);
+    }
+
+    private void remplacerSansVerrou(Evenement evenement) {
+        if (evenement.equals(evenements.get(evenement.soutenanceId()))) return;
+        retirerSansVerrou(evenement.soutenanceId());
+        evenements.put(evenement.soutenanceId(), evenement);
+        for (String cle : evenement.abonnes()) {
+            parAbonne.computeIfAbsent(cle, k -> new HashSet<>()).add(evenement.soutenanceId());
+        }
+        invalider(evenement);
+    }
+
+    private void retirerSansVerrou(Long soutenanceId) {
+        Evenement ancien = evenements.remove(soutenanceId);
+        if (ancien == null) return;
+        for (String cle : ancien.abonnes()) {
+            Set<Long> ids = parAbonne.get(cle);
+            if (ids == null) continue;
+            ids.remove(soutenanceId);
+            if (ids.isEmpty()) parAbonne.remove(cle);
+        }
+        invalider(ancien);
+    }
+
+    private void invalider(Evenement evenement) {
+        cache.remove(GLOBAL);
+        evenement.abonnes().forEach(cache::remove);
+    }
+
+    // ========================================================
+    // SÉRIALISATION
+    // ========================================================
+
+    private Evenement evenement(Soutenance s) {
+        if (s.getStatut() != StatutSoutenance.PLANIFIEE || s.getDateSoutenance() == null) return null;
+
+        Set<String> abonnes = new LinkedHashSet<>();
+        if (s.getDoctorantId() != null) abonnes.add(cleUtilisateur(s.getDoctorantId()));
+        if (s.getDirecteurId() != null) abonnes.add(cleUtilisateur(s.getDirecteurId()));
+        List<MembreJury> jury = s.getMembresJury() == null ? List.of() : s.getMembresJury();
+        for (MembreJury membre : jury) {
+            if (membre.getEmail() != null && !membre.getEmail().isBlank()) abonnes.add(cleJury(membre.getEmail()));
+        }
+
+        LocalDateTime debut = s.getHeureSoutenance() != null
+                ? LocalDateTime.of(s.getDateSoutenance(), s.getHeureSoutenance())
+                : s.getDateSoutenance().atStartOfDay();
+        LocalDateTime modification = s.getUpdatedAt() != null ? s.getUpdatedAt() : debut;
+
+        StringBuilder v = new StringBuilder(512);
+        v.append("BEGIN:VEVENT").append(CRLF);
+        ligne(v, "UID:soutenance-" + s.getId() + "@portail-doctorat");
+        ligne(v, "DTSTAMP:" + utc(modification));
+        if (s.getHeureSoutenance() != null) {
+            ligne(v, "DTSTART:" + utc(debut));
+            ligne(v, "DTEND:" + utc(debut.plus(dureeSoutenance)));
+        } else {
+            // Heure inconnue : événement sur la journée
+            ligne(v, "DTSTART;VALUE=DATE:" + FORMAT_JOUR.format(s.getDateSoutenance()));
+            ligne(v, "DTEND;VALUE=DATE:" + FORMAT_JOUR.format(s.getDateSoutenance().plusDays(1)));
+        }
+        ligne(v, "SUMMARY:" + texte("Soutenance de thèse : " + Objects.toString(s.getTitreThese(), "")));
+        if (s.getLieuSoutenance() != null) ligne(v, "LOCATION:" + texte(s.getLieuSoutenance()));
+        if (!jury.isEmpty()) {
+            StringBuilder description = new StringBuilder("Jury :");
+            for (MembreJury membre : jury) {
+                description.append("\n- ").append(Objects.toString(membre.getPrenom(), "")).append(' ')
+                        .append(Objects.toString(membre.getNom(), ""));
+                if (membre.getRole() != null) description.append(" (").append(membre.getRole()).append(')');
+            }
+            ligne(v, "DESCRIPTION:" + texte(description.toString()));
+        }
+        ligne(v, "STATUS:CONFIRMED");
+        v.append("END:VEVENT").append(CRLF);
+
+        return new Evenement(s.getId(), debut, abonnes, v.toString());
+    }
+
+    private String utc(LocalDateTime dateTime) {
+        return FORMAT_UTC.format(dateTime.atZone(fuseau).withZoneSameInstant(ZoneOffset.UTC));
+    }
+
+    /**
+     * Échappement des valeurs TEXT (RFC 5545 §3.3.11)
+     */
+    private static String texte(String valeur) {
+        return valeur.replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace(",", "\\,")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n");
+    }
+
+    /**
+     * Ajoute une ligne repliée à 75 octets (continuation : CRLF + espace), sans couper un caractère UTF-8
+     */
+    private static void ligne(StringBuilder sortie, String contenu) {
+        int octets = 0;
+        int limite = LONGUEUR_LIGNE;
+        for (int i = 0; i < contenu.length(); ) {
+            int codePoint = contenu.codePointAt(i);
+            int taille = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8).length;
+            if (octets + taille > limite) {
+                sortie.append(CRLF).append(' ');
+                octets = 0;
+                limite = LONGUEUR_LIGNE - 1;
+            }
+            sortie.appendCodePoint(codePoint);
+            octets += taille;
+            i += Character.charCount(codePoint);
+        }
+        sortie.append(CRLF);
+    }
+}
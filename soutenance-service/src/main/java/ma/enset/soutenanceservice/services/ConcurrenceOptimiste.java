@@ -0,0 +1,69 @@
+package ma.enset.soutenanceservice.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Politique de conflit pour les transitions de workflow (verrouillage optimiste sur Soutenance.version).
+ *
+ * L'appel doit se faire hors transaction (contrôleur) : chaque essai ouvre sa propre transaction
+ * et relit l'état à jour.
+ * - Transition idempotente : rejouée jusqu'à {@code max-tentatives} fois, avec une attente croissante
+ *   et aléatoire pour désynchroniser les concurrents.
+ * - Autre transition : le conflit est remonté tout de suite ({@link ConflitConcurrentException}),
+ *   l'utilisateur doit recharger la soutenance avant de recommencer.
+ */
+@Component
+@Slf4j
+public class ConcurrenceOptimiste {
+
+    private final int maxTentatives;
+    private final Duration attente;
+
+    public ConcurrenceOptimiste(@Value("${concurrence.max-tentatives:3}") int maxTentatives,
+                                @Value("${concurrence.attente:25ms}") Duration attente) {
+        this.maxTentatives = Math.max(1, maxTentatives);
+        this.attente = attente;
+    }
+
+    public <T> T reessayer(String operation, Supplier<T> transition) {
+        for (int tentative = 1; ; tentative++) {
+            try {
+                return transition.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (tentative >= maxTentatives) throw conflit(operation, e);
+                log.info("🔁 Conflit de version sur {} (essai {}/{}), nouvel essai", operation, tentative, maxTentatives);
+                pause(tentative);
+            }
+        }
+    }
+
+    public <T> T uneFois(String operation, Supplier<T> transition) {
+        try {
+            return transition.get();
+        } catch (OptimisticLockingFailureException e) {
+            throw conflit(operation, e);
+        }
+    }
+
+    private ConflitConcurrentException conflit(String operation, OptimisticLockingFailureException e) {
+        log.warn("⚠️ Conflit de modification concurrente sur {}: {}", operation, e.getMessage());
+        return new ConflitConcurrentException(
+                "La soutenance a été modifiée entre-temps par un autre utilisateur. Rechargez-la puis réessayez.", e);
+    }
+
+    private void pause(int tentative) {
+        long base = attente.toMillis() * tentative;
+        try {
+            Thread.sleep(base + ThreadLocalRandom.current().nextLong(attente.toMillis() + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ma.enset.soutenanceservice.services;
+
+/**
+ * La soutenance a été modifiée par quelqu'un d'autre entre la lecture et l'écriture
+ * (conflit de version) : renvoyée au client en 409 Conflict.
+ */
+public class ConflitConcurrentException extends RuntimeException {
+
+    public ConflitConcurrentException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,284 @@
+package ma.enset.soutenanceservice.services;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.entities.FichierStocke;
+import ma.enset.soutenanceservice.repositories.FichierStockeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static ma.enset.soutenanceservice.services.Transactions.apresCommit;
+import static ma.enset.soutenanceservice.services.Transactions.apresTransaction;
+
+/**
+ * Stockage des pièces de soutenance adressé par contenu.
+ *
+ * Le fichier est haché (SHA-256) pendant qu'il est écrit sur disque, puis rangé sous
+ * uploads/soutenances/ab/cd/&lt;sha256&gt;.ext. Un contenu déjà connu n'est pas réécrit :
+ * on incrémente son compteur de références (upsert atomique, sûr en cas d'envois concurrents).
+ * Un fichier n'est supprimé du disque que si sa ligne est absente, vérifié sous verrou au moment
+ * de la suppression : après la libération de la dernière référence, ou si la transaction qui
+ * l'a écrit est annulée. Le nom retourné ("&lt;sha256&gt;.ext") est celui
+ * stocké en base ; les anciens fichiers (prefixe_uuid.ext, à plat) restent lisibles via {@link #load}.
+ *
+ * Les fichiers des soutenances terminées peuvent être déplacés vers le stockage d'archives
+ * (uploads/archives/soutenances, même arborescence, compressés en .gz) ; {@link #localiser}
+ * indique où lire un fichier, quel que soit son niveau de stockage.
+ */
+@Service
+@Slf4j
+public class FileStorageService {
+
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("^([0-9a-f]{64})(\\.[A-Za-z0-9]{1,10})?$");
+
+    private final FichierStockeRepository fichierStockeRepository;
+    private final TransactionTemplate nouvelleTransaction;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Taille d'origine lue dans l'en-tête de fin gzip (ISIZE, modulo 2^32)
+    private static final long TAILLE_MAX_ARCHIVE = 1L << 32;
+
+    private final Path rootLocation;
+    private final Path archiveLocation;
+
+    public FileStorageService(FichierStockeRepository fichierStockeRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${stockage.racine:uploads}") String racine) {
+        this.fichierStockeRepository = fichierStockeRepository;
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rootLocation = Paths.get(racine, "soutenances");
+        this.archiveLocation = Paths.get(racine, "archives", "soutenances");
+    }
+
+    /**
+     * Emplacement d'un fichier : copie "chaude" telle quelle, ou copie archivée compressée
+     */
+    public record Emplacement(Path chemin, boolean archive) {
+    }
+
+    @Transactional
+    public String saveFile(MultipartFile file) {
+        if (file == null || file.isEmpty()) return null;
+
+        Path tmp = null;
+        try {
+            Path tmpDir = rootLocation.resolve("tmp");
+            Files.createDirectories(tmpDir);
+            tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+
+            // Hachage pendant la copie : une seule lecture du flux
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+
+            // Le nom retenu est celui du premier envoi (l'extension peut différer)
+            fichierStockeRepository.ajouterReference(sha256, sha256 + extension(file.getOriginalFilename()), file.getSize());
+            FichierStocke stocke = fichierStockeRepository.findBySha256(sha256)
+                    .orElseThrow(() -> new RuntimeException("Fichier stocké introuvable: " + sha256));
+            String filename = stocke.getNomFichier();
+            if (moveIfAbsent(tmp, load(filename))) {
+                // Écrit par cet envoi : retiré si la transaction est annulée (et la ligne absente)
+                apresTransaction(committed -> {
+                    if (!committed) supprimerSiOrphelin(sha256, filename);
+                });
+            }
+            if (stocke.getNbReferences() > 1) {
+                log.info("♻️ Fichier déjà stocké (dédupliqué): {}", filename);
+            }
+            return filename;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Erreur lors de la sauvegarde du fichier: " + e.getMessage());
+        } finally {
+            deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * Chemin disque d'un fichier à partir du nom stocké en base
+     */
+    public Path load(String filename) {
+        Matcher matcher = CONTENT_ADDRESSED.matcher(filename);
+        if (matcher.matches()) {
+            String sha256 = matcher.group(1);
+            return rootLocation.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(filename);
+        }
+        Path path = rootLocation.resolve(filename).normalize();
+        if (!path.startsWith(rootLocation)) {
+            throw new IllegalArgumentException("Chemin de fichier invalide: " + filename);
+        }
+        return path;
+    }
+
+    /**
+     * Chemin de la copie archivée (gzip) d'un fichier
+     */
+    public Path loadArchive(String filename) {
+        Path relatif = rootLocation.relativize(load(filename));
+        return archiveLocation.resolve(relatif + ".gz");
+    }
+
+    /**
+     * Où lire un fichier : la copie chaude si elle existe, sinon l'archive.
+     * Si aucune n'existe, l'emplacement chaud est retourné (le fichier est absent).
+     */
+    public Emplacement localiser(String filename) {
+        Path chaud = load(filename);
+        if (!Files.exists(chaud)) {
+            Path archive = loadArchive(filename);
+            if (Files.isRegularFile(archive)) return new Emplacement(archive, true);
+        }
+        return new Emplacement(chaud, false);
+    }
+
+    /**
+     * Taille décompressée d'une archive, lue dans les 4 derniers octets du gzip (little-endian)
+     */
+    public long tailleDecompressee(Path archive) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(archive.toFile(), "r")) {
+            raf.seek(raf.length() - 4);
+            long b0 = raf.read(), b1 = raf.read(), b2 = raf.read(), b3 = raf.read();
+            return b0 | (b1 << 8) | (b2 << 16) | (b3 << 24);
+        }
+    }
+
+    public InputStream ouvrirArchive(Path archive) throws IOException {
+        return new GZIPInputStream(Files.newInputStream(archive), BUFFER_SIZE);
+    }
+
+    /**
+     * Déplace un fichier vers le stockage d'archives : compression dans un fichier temporaire,
+     * renommage atomique, puis suppression de la copie chaude. La date de modification est
+     * conservée (ETag inchangé pour les clients).
+     *
+     * @param apresEcriture appelé avec le nombre d'octets lus à chaque bloc (limitation de débit)
+     * @return nombre d'octets libérés dans le stockage chaud (0 si rien à archiver)
+     */
+    public long archiver(String filename, IntConsumer apresEcriture) throws IOException {
+        Path source = load(filename);
+        if (!Files.isRegularFile(source)) return 0;
+        long taille = Files.size(source);
+        if (taille >= TAILLE_MAX_ARCHIVE) return 0;
+
+        Path cible = loadArchive(filename);
+        if (Files.isRegularFile(cible)) {
+            // Copie chaude recréée par un nouvel envoi du même contenu : l'archive suffit
+            Files.delete(source);
+            return taille;
+        }
+
+        Files.createDirectories(cible.getParent());
+        Path tmp = Files.createTempFile(cible.getParent(), "archive-", ".part");
+        try {
+            try (InputStream in = Files.newInputStream(source);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int lus;
+                while ((lus = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, lus);
+                    apresEcriture.accept(lus);
+                }
+            }
+            Files.setLastModifiedTime(tmp, Files.getLastModifiedTime(source));
+            Files.move(tmp, cible, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(source);
+            return taille;
+        } finally {
+            deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * Une soutenance ne référence plus ce fichier : le contenu est supprimé
+     * (après commit) quand plus aucune soutenance ne le pointe.
+     */
+    @Transactional
+    public void release(String filename) {
+        if (filename == null) return;
+        Matcher matcher = CONTENT_ADDRESSED.matcher(filename);
+        if (!matcher.matches()) return; // anciens fichiers non partagés : laissés en place
+
+        String sha256 = matcher.group(1);
+        fichierStockeRepository.decrementerReferences(sha256);
+        if (fichierStockeRepository.supprimerSiNonReference(sha256) > 0) {
+            apresCommit(() -> supprimerSiOrphelin(sha256, filename));
+        }
+    }
+
+    /**
+     * Supprime les copies chaude et archivée si plus aucune ligne ne référence le contenu.
+     * La vérification et la suppression se font sous verrou, dans une transaction à part :
+     * un envoi concurrent du même contenu recrée la ligne avant ou après, jamais entre les deux.
+     */
+    private void supprimerSiOrphelin(String sha256, String filename) {
+        try {
+            nouvelleTransaction.executeWithoutResult(status -> {
+                if (fichierStockeRepository.findBySha256ForUpdate(sha256).isPresent()) {
+                    log.info("♻️ Fichier de nouveau référencé, conservé: {}", filename);
+                    return;
+                }
+                deleteQuietly(load(filename));
+                deleteQuietly(loadArchive(filename));
+            });
+        } catch (Exception e) {
+            log.warn("⚠️ Suppression de {} impossible: {}", filename, e.getMessage());
+        }
+    }
+
+    /**
+     * @return true si le fichier a été écrit par cet appel (absent jusque-là)
+     */
+    private boolean moveIfAbsent(Path tmp, Path target) throws IOException {
+        if (Files.exists(target)) return false;
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            // Écrit entre-temps par un envoi concurrent du même contenu
+            return false;
+        }
+    }
+
+    private String extension(String originalFilename) {
+        if (originalFilename != null && originalFilename.contains(".")) {
+            String extension = originalFilename.substring(originalFilename.lastIndexOf(".")).toLowerCase();
+            if (extension.matches("\\.[a-z0-9]{1,10}")) return extension;
+        }
+        return "";
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) return;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("⚠️ Impossible de supprimer {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ma.enset.soutenanceservice.services;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import ma.enset.soutenanceservice.entities.JuryDisponible;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA de JuryDisponible : répercute chaque écriture sur l'index de recommandation.
+ * Instancié par Spring (SpringBeanContainer d'Hibernate) ; l'index est résolu à la demande
+ * pour ne pas dépendre de l'EntityManagerFactory pendant sa création.
+ */
+@Component
+public class JuryDisponibleListener {
+
+    private final ObjectProvider<JuryRecommandationService> recommandationService;
+
+    public JuryDisponibleListener(ObjectProvider<JuryRecommandationService> recommandationService) {
+        this.recommandationService = recommandationService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void apresEnregistrement(JuryDisponible jury) {
+        recommandationService.ifAvailable(service -> service.onEnregistrement(jury));
+    }
+
+    @PostRemove
+    public void apresSuppression(JuryDisponible jury) {
+        recommandationService.ifAvailable(service -> service.onSuppression(jury.getId()));
+    }
+}
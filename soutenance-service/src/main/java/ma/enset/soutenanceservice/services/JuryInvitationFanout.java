@@ -0,0 +1,74 @@
+package ma.enset.soutenanceservice.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.config.KafkaTopics;
+import ma.enset.soutenanceservice.events.JuryInvitationBatch;
+import ma.enset.soutenanceservice.events.JuryInvitationEvent;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Envoi des invitations d'un jury dans une seule transaction Kafka :
+ * les consommateurs en read_committed voient toutes les invitations ou aucune.
+ * Appelé par {@link OutboxRelay} hors de toute transaction base de données : l'aller-retour
+ * begin/commit Kafka ne prolonge aucun verrou sur l'outbox.
+ *
+ * Métriques : soutenance.jury.invitations.batch (latence par lot, tag outcome)
+ * et soutenance.jury.invitations.batch.size (nombre d'invitations par lot).
+ */
+@Component
+@Slf4j
+public class JuryInvitationFanout {
+
+    private final KafkaTemplate<String, Object> transactionalKafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary tailleLot;
+
+    public JuryInvitationFanout(@Qualifier("transactionalKafkaTemplate") KafkaTemplate<String, Object> transactionalKafkaTemplate,
+                                MeterRegistry meterRegistry) {
+        this.transactionalKafkaTemplate = transactionalKafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.tailleLot = DistributionSummary.builder("soutenance.jury.invitations.batch.size")
+                .description("Nombre d'invitations publiées par transaction")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publie le lot ; le futur est terminé une fois la transaction validée (ou en échec).
+     */
+    public CompletableFuture<Void> publier(JuryInvitationBatch batch) {
+        String cle = String.valueOf(batch.getSoutenanceId());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            transactionalKafkaTemplate.executeInTransaction(operations -> {
+                for (JuryInvitationEvent invitation : batch.getInvitations()) {
+                    operations.send(KafkaTopics.JURY_INVITATION, cle, invitation);
+                }
+                return null;
+            });
+            sample.stop(timer("success"));
+            tailleLot.record(batch.getInvitations().size());
+            log.info("✅ {} invitations jury publiées (transaction) - Soutenance ID: {}",
+                    batch.getInvitations().size(), batch.getSoutenanceId());
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            sample.stop(timer("failure"));
+            log.error("❌ Transaction d'invitations annulée - Soutenance ID: {}: {}", batch.getSoutenanceId(), e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Timer timer(String outcome) {
+        return Timer.builder("soutenance.jury.invitations.batch")
+                .description("Latence de publication d'un lot d'invitations jury")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
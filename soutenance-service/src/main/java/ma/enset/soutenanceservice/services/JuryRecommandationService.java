@@ -0,0 +1,313 @@
+package ma.enset.soutenanceservice.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.dto.JuryRecommandationDTO;
+import ma.enset.soutenanceservice.entities.JuryDisponible;
+import ma.enset.soutenanceservice.entities.MembreJury;
+import ma.enset.soutenanceservice.entities.Soutenance;
+import ma.enset.soutenanceservice.enums.RoleJury;
+import ma.enset.soutenanceservice.enums.StatutSoutenance;
+import ma.enset.soutenanceservice.repositories.JuryDisponibleRepository;
+import ma.enset.soutenanceservice.repositories.MembreJuryRepository;
+import ma.enset.soutenanceservice.repositories.SoutenanceRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import static ma.enset.soutenanceservice.services.Transactions.apresCommit;
+
+/**
+ * Recommandation de membres de jury pour une soutenance.
+ *
+ * Les JuryDisponible sont gardés en mémoire avec un index inversé :
+ * terme de la spécialité → ids, grade → ids, établissement → ids, rôle → ids.
+ * Une requête ne parcourt que les listes des termes présents dans les mots-clés / le titre
+ * de la thèse ; chaque terme pèse selon sa rareté (idf). Le score est ensuite pénalisé par
+ * la charge du membre (participations aux soutenances non closes, une requête GROUP BY).
+ *
+ * L'index est construit au démarrage, mis à jour après commit à chaque écriture JPA
+ * ({@link JuryDisponibleListener}), et resynchronisé périodiquement de façon incrémentale
+ * (updated_at) pour les lignes modifiées directement en base.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JuryRecommandationService {
+
+    private static final Set<StatutSoutenance> STATUTS_CLOS = EnumSet.of(StatutSoutenance.TERMINEE, StatutSoutenance.REJETEE);
+    private static final double POIDS_MOTS_CLES = 2.0;
+    private static final double POIDS_TITRE = 1.0;
+    // score = pertinence / (1 + PENALITE_CHARGE * charge)
+    private static final double PENALITE_CHARGE = 0.25;
+    private static final int LIMITE_MAX = 50;
+
+    private final JuryDisponibleRepository juryDisponibleRepository;
+    private final MembreJuryRepository membreJuryRepository;
+    private final SoutenanceRepository soutenanceRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, JuryDisponible> parId = new HashMap<>();
+    private final Map<String, Set<Long>> parTerme = new HashMap<>();
+    private final Map<String, Set<Long>> parGrade = new HashMap<>();
+    private final Map<String, Set<Long>> parEtablissement = new HashMap<>();
+    private final Map<RoleJury, Set<Long>> parRole = new EnumMap<>(RoleJury.class);
+    private final Map<Long, Set<String>> termesParJury = new HashMap<>();
+    private volatile LocalDateTime derniereSynchro;
+
+    // ========================================================
+    // CONSULTATION
+    // ========================================================
+
+    public List<JuryDisponible> getJurysDisponibles() {
+        lock.readLock().lock();
+        try {
+            return parId.values().stream().sorted(Comparator.comparing(JuryDisponible::getId)).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<JuryDisponible> getJurysDisponiblesByRole(RoleJury role) {
+        lock.readLock().lock();
+        try {
+            return parRole.getOrDefault(role, Set.of()).stream()
+                    .map(parId::get).sorted(Comparator.comparing(JuryDisponible::getId)).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<JuryDisponible> getJuryDisponibleById(Long id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(parId.get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Classe les membres disponibles pour une soutenance.
+     * @param role          filtre optionnel
+     * @param grade         filtre optionnel (comparaison sans accents ni casse)
+     * @param etablissement filtre optionnel
+     */
+    public List<JuryRecommandationDTO> recommander(Long soutenanceId, RoleJury role, String grade,
+                                                   String etablissement, int limite) {
+        Soutenance soutenance = soutenanceRepository.findWithJuryById(soutenanceId)
+                .orElseThrow(() -> new RuntimeException("Soutenance non trouvée: " + soutenanceId));
+        int n = Math.max(1, Math.min(limite, LIMITE_MAX));
+
+        Map<String, Double> requete = new LinkedHashMap<>();
+        for (String terme : Tokeniseur.termes(soutenance.getTitreThese())) requete.put(terme, POIDS_TITRE);
+        for (String terme : Tokeniseur.termes(soutenance.getMotsCles())) requete.put(terme, POIDS_MOTS_CLES);
+
+        Set<String> dejaMembres = soutenance.getMembresJury().stream()
+                .map(MembreJury::getEmail).filter(e -> e != null).map(String::toLowerCase)
+                .collect(Collectors.toSet());
+
+        // 1. Pertinence, calculée uniquement à partir de l'index
+        List<JuryRecommandationDTO> candidats = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<Long> eligibles = new HashSet<>(role != null ? parRole.getOrDefault(role, Set.of()) : parId.keySet());
+            if (grade != null && !grade.isBlank()) eligibles.retainAll(parGrade.getOrDefault(Tokeniseur.normaliser(grade), Set.of()));
+            if (etablissement != null && !etablissement.isBlank()) {
+                eligibles.retainAll(parEtablissement.getOrDefault(Tokeniseur.normaliser(etablissement), Set.of()));
+            }
+            eligibles.removeIf(id -> dejaMembres.contains(parId.get(id).getEmail().toLowerCase()));
+
+            Map<Long, Double> pertinence = new HashMap<>();
+            Map<Long, List<String>> communs = new HashMap<>();
+            int total = Math.max(1, parId.size());
+            requete.forEach((terme, poids) -> {
+                Set<Long> ids = parTerme.get(terme);
+                if (ids == null) return;
+                double idf = Math.log(1.0 + (double) total / ids.size());
+                for (Long id : ids) {
+                    if (!eligibles.contains(id)) continue;
+                    pertinence.merge(id, poids * idf, Double::sum);
+                    communs.computeIfAbsent(id, k -> new ArrayList<>()).add(terme);
+                }
+            });
+
+            for (Long id : eligibles) {
+                JuryDisponible jury = parId.get(id);
+                candidats.add(JuryRecommandationDTO.builder()
+                        .juryDisponibleId(id)
+                        .nom(jury.getNom())
+                        .prenom(jury.getPrenom())
+                        .email(jury.getEmail())
+                        .etablissement(jury.getEtablissement())
+                        .grade(jury.getGrade())
+                        .specialite(jury.getSpecialite())
+                        .role(jury.getRole())
+                        .score(pertinence.getOrDefault(id, 0.0))
+                        .termesCommuns(communs.getOrDefault(id, List.of()))
+                        .build());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // 2. On ne calcule la charge que pour les meilleurs candidats
+        candidats.sort(Comparator.comparingDouble(JuryRecommandationDTO::getScore).reversed());
+        List<JuryRecommandationDTO> preselection = new ArrayList<>(candidats.subList(0, Math.min(candidats.size(), n * 5)));
+        if (preselection.isEmpty()) return preselection;
+
+        Map<String, Long> charges = new HashMap<>();
+        List<String> emails = preselection.stream().map(c -> c.getEmail().toLowerCase()).distinct().toList();
+        for (Object[] ligne : membreJuryRepository.countChargeByEmails(emails, STATUTS_CLOS)) {
+            charges.put((String) ligne[0], (Long) ligne[1]);
+        }
+
+        for (JuryRecommandationDTO candidat : preselection) {
+            long charge = charges.getOrDefault(candidat.getEmail().toLowerCase(), 0L);
+            candidat.setChargeActuelle(charge);
+            candidat.setScore(candidat.getScore() / (1.0 + PENALITE_CHARGE * charge));
+        }
+        preselection.sort(Comparator.comparingDouble(JuryRecommandationDTO::getScore).reversed()
+                .thenComparingLong(JuryRecommandationDTO::getChargeActuelle)
+                .thenComparing(JuryRecommandationDTO::getNom, Comparator.nullsLast(String::compareToIgnoreCase)));
+        return preselection.subList(0, Math.min(preselection.size(), n));
+    }
+
+    // ========================================================
+    // MISE À JOUR DE L'INDEX
+    // ========================================================
+
+    /**
+     * Appelé par le listener JPA : l'index n'est modifié qu'après commit
+     */
+    void onEnregistrement(JuryDisponible jury) {
+        JuryDisponible copie = new JuryDisponible(jury.getId(), jury.getNom(), jury.getPrenom(), jury.getEmail(),
+                jury.getEtablissement(), jury.getGrade(), jury.getSpecialite(), jury.getRole(),
+                jury.getCreatedAt(), jury.getUpdatedAt());
+        apresCommit(() -> indexer(List.of(copie)));
+    }
+
+    void onSuppression(Long id) {
+        apresCommit(() -> retirer(List.of(id)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruire() {
+        LocalDateTime debut = LocalDateTime.now();
+        List<JuryDisponible> jurys = juryDisponibleRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            parId.clear();
+            parTerme.clear();
+            parGrade.clear();
+            parEtablissement.clear();
+            parRole.clear();
+            termesParJury.clear();
+            jurys.forEach(this::ajouterSansVerrou);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        derniereSynchro = debut;
+        log.info("🔎 Index des jurys disponibles construit: {} membres, {} termes", jurys.size(), parTerme.size());
+    }
+
+    /**
+     * Rattrape les écritures faites hors JPA (scripts SQL, autre instance)
+     */
+    @Scheduled(initialDelayString = "${jury-index.synchro-ms:60000}", fixedDelayString = "${jury-index.synchro-ms:60000}")
+    public void synchroniser() {
+        if (derniereSynchro == null) {
+            reconstruire();
+            return;
+        }
+        LocalDateTime debut = LocalDateTime.now();
+        try {
+            // Marge pour les transactions commitées pendant la synchro précédente
+            List<JuryDisponible> modifies = juryDisponibleRepository.findByUpdatedAtAfter(derniereSynchro.minusMinutes(1));
+            Set<Long> existants = new HashSet<>(juryDisponibleRepository.findAllIds());
+            List<Long> supprimes;
+            lock.readLock().lock();
+            try {
+                supprimes = parId.keySet().stream().filter(id -> !existants.contains(id)).toList();
+            } finally {
+                lock.readLock().unlock();
+            }
+            indexer(modifies);
+            retirer(supprimes);
+            derniereSynchro = debut;
+            if (!modifies.isEmpty() || !supprimes.isEmpty()) {
+                log.info("🔎 Index des jurys synchronisé: {} modifiés, {} supprimés", modifies.size(), supprimes.size());
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Synchronisation de l'index des jurys impossible: {}", e.getMessage());
+        }
+    }
+
+    private void indexer(List<JuryDisponible> jurys) {
+        if (jurys.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            for (JuryDisponible jury : jurys) {
+                retirerSansVerrou(jury.getId());
+                ajouterSansVerrou(jury);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void retirer(List<Long> ids) {
+        if (ids.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            ids.forEach(this::retirerSansVerrou);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ajouterSansVerrou(JuryDisponible jury) {
+        Long id = jury.getId();
+        parId.put(id, jury);
+        Set<String> termes = Tokeniseur.termes(jury.getSpecialite());
+        termesParJury.put(id, termes);
+        termes.forEach(t -> parTerme.computeIfAbsent(t, k -> new HashSet<>()).add(id));
+        if (jury.getGrade() != null) parGrade.computeIfAbsent(Tokeniseur.normaliser(jury.getGrade()), k -> new HashSet<>()).add(id);
+        if (jury.getEtablissement() != null) {
+            parEtablissement.computeIfAbsent(Tokeniseur.normaliser(jury.getEtablissement()), k -> new HashSet<>()).add(id);
+        }
+        if (jury.getRole() != null) parRole.computeIfAbsent(jury.getRole(), k -> new HashSet<>()).add(id);
+    }
+
+    private void retirerSansVerrou(Long id) {
+        JuryDisponible ancien = parId.remove(id);
+        if (ancien == null) return;
+        for (String terme : termesParJury.remove(id)) retirerDe(parTerme, terme, id);
+        if (ancien.getGrade() != null) retirerDe(parGrade, Tokeniseur.normaliser(ancien.getGrade()), id);
+        if (ancien.getEtablissement() != null) retirerDe(parEtablissement, Tokeniseur.normaliser(ancien.getEtablissement()), id);
+        if (ancien.getRole() != null) retirerDe(parRole, ancien.getRole(), id);
+    }
+
+    private static <K> void retirerDe(Map<K, Set<Long>> index, K cle, Long id) {
+        Set<Long> ids = index.get(cle);
+        if (ids == null) return;
+        ids.remove(id);
+        if (ids.isEmpty()) index.remove(cle);
+    }
+}
@@ -0,0 +1,80 @@
+package ma.enset.soutenanceservice.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.dto.UserDTO;
+import ma.enset.soutenanceservice.events.JuryInvitationBatch;
+import ma.enset.soutenanceservice.events.SoutenanceStatusChangedEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Enrichissement des événements de l'outbox juste avant l'envoi Kafka.
+ *
+ * Les workflows n'enregistrent qu'un événement minimal (ids, statuts, données locales) ;
+ * les informations destinataire (email, nom du doctorant) sont ajoutées ici pour tout un lot,
+ * avec un seul appel groupé au user-service via {@link UserCacheService}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxEnricher {
+
+    private final UserCacheService userCacheService;
+
+    /**
+     * Complète les événements du lot.
+     * @return les événements dont le destinataire n'a pas pu être résolu (comparaison par identité)
+     */
+    public Set<Object> enrichir(Collection<?> events) {
+        List<SoutenanceStatusChangedEvent> aCompleter = events.stream()
+                .filter(SoutenanceStatusChangedEvent.class::isInstance)
+                .map(SoutenanceStatusChangedEvent.class::cast)
+                .filter(e -> e.getDoctorantId() != null && e.getDoctorantEmail() == null)
+                .toList();
+        List<JuryInvitationBatch> invitations = events.stream()
+                .filter(JuryInvitationBatch.class::isInstance)
+                .map(JuryInvitationBatch.class::cast)
+                .filter(b -> b.getDoctorantId() != null)
+                .toList();
+
+        Set<Object> nonResolus = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (aCompleter.isEmpty() && invitations.isEmpty()) return nonResolus;
+
+        List<Long> ids = new ArrayList<>();
+        aCompleter.forEach(e -> ids.add(e.getDoctorantId()));
+        invitations.forEach(b -> ids.add(b.getDoctorantId()));
+        Map<Long, UserDTO> users = userCacheService.getUsers(ids);
+
+        for (JuryInvitationBatch batch : invitations) {
+            UserDTO doctorant = users.get(batch.getDoctorantId());
+            if (doctorant == null) {
+                nonResolus.add(batch);
+                continue;
+            }
+            batch.getInvitations().forEach(i -> i.setDoctorantNom(doctorant.getPrenom() + " " + doctorant.getNom()));
+        }
+
+        for (SoutenanceStatusChangedEvent event : aCompleter) {
+            UserDTO doctorant = users.get(event.getDoctorantId());
+            if (doctorant == null) {
+                nonResolus.add(event);
+                continue;
+            }
+            event.setDoctorantEmail(doctorant.getEmail());
+            event.setDoctorantNom(doctorant.getNom());
+            event.setDoctorantPrenom(doctorant.getPrenom());
+        }
+        if (!nonResolus.isEmpty()) {
+            log.warn("⚠️ {} événements sans destinataire résolu (user-service indisponible ?)", nonResolus.size());
+        }
+        return nonResolus;
+    }
+}
@@ -0,0 +1,249 @@
+package ma.enset.soutenanceservice.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.entities.OutboxEvent;
+import ma.enset.soutenanceservice.events.JuryInvitationBatch;
+import ma.enset.soutenanceservice.repositories.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relais de l'outbox vers Kafka.
+ *
+ * Chaque lot passe par trois étapes :
+ * 1. réservation dans une transaction courte (verrou sur les lignes, puis claimed_by / claimed_until) ;
+ * 2. hors transaction : désérialisation, enrichissement des destinataires ({@link OutboxEnricher},
+ *    appel au user-service), puis envois Kafka par vagues : chaque vague envoie le prochain événement
+ *    de chaque soutenance et attend les accusés avant la suivante ;
+ * 3. dans une seconde transaction courte, marquage des publiés et enregistrement des échecs.
+ *
+ * La clé Kafka est l'id de la soutenance et ses événements partent l'un après l'autre : l'ordre est
+ * conservé par soutenance. Un événement en échec, réservé ou en attente de reprise bloque les suivants
+ * de la même soutenance (non envoyés, ils sont libérés pour le prochain passage). Après un échec, la reprise est différée (backoff exponentiel) ; au-delà de
+ * {@code max-attempts}, ou si le payload est illisible, l'événement est mis de côté (lettre morte)
+ * et ne bloque plus sa soutenance. Livraison au moins une fois : les consommateurs dédupliquent sur eventId.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxEnricher outboxEnricher;
+    private final JuryInvitationFanout juryInvitationFanout;
+    private final String instanceId;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration retryBase;
+    private final Duration retryMax;
+    private final Duration retention;
+    private final Duration enrichmentMaxDelay;
+
+    private record Echec(OutboxEvent outbox, String message, boolean definitif) {
+    }
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaTemplate<String, Object> kafkaTemplate,
+                       ObjectMapper objectMapper,
+                       TransactionTemplate transactionTemplate,
+                       OutboxEnricher outboxEnricher,
+                       JuryInvitationFanout juryInvitationFanout,
+                       @Value("${spring.application.name:soutenance-service}:${random.uuid}") String instanceId,
+                       @Value("${outbox.relay.batch-size:200}") int batchSize,
+                       @Value("${outbox.relay.send-timeout:10s}") Duration sendTimeout,
+                       @Value("${outbox.relay.lease:2m}") Duration lease,
+                       @Value("${outbox.relay.max-attempts:50}") int maxAttempts,
+                       @Value("${outbox.relay.retry-base:1s}") Duration retryBase,
+                       @Value("${outbox.relay.retry-max:5m}") Duration retryMax,
+                       @Value("${outbox.retention:7d}") Duration retention,
+                       @Value("${outbox.enrichment.max-delay:2m}") Duration enrichmentMaxDelay) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxEnricher = outboxEnricher;
+        this.juryInvitationFanout = juryInvitationFanout;
+        this.instanceId = instanceId;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.retryBase = retryBase;
+        this.retryMax = retryMax;
+        this.retention = retention;
+        this.enrichmentMaxDelay = enrichmentMaxDelay;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.delay-ms:500}")
+    public void relay() {
+        try {
+            // Tant que les lots sont pleins et sans échec, on enchaîne sans attendre le prochain passage
+            int publies;
+            do {
+                List<OutboxEvent> lot = transactionTemplate.execute(status -> reserver());
+                if (lot == null || lot.isEmpty()) return;
+                publies = publierLot(lot);
+            } while (publies == batchSize);
+        } catch (Exception e) {
+            log.error("❌ Relais outbox interrompu: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${outbox.purge-cron:0 0 3 * * *}")
+    public void purger() {
+        Integer supprimes = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minus(retention)));
+        log.info("🧹 Outbox purgée: {} événements publiés supprimés", supprimes);
+    }
+
+    /**
+     * Étape 1 (transaction courte) : réserve les événements publiables du prochain lot.
+     * Un événement déjà réservé (autre instance) ou en attente de reprise bloque sa soutenance.
+     */
+    private List<OutboxEvent> reserver() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        Set<String> bloquees = new HashSet<>();
+        List<OutboxEvent> reserves = new ArrayList<>();
+        for (OutboxEvent outbox : outboxEventRepository.findPendingForUpdate(PageRequest.of(0, batchSize))) {
+            if (outbox.getClaimedUntil() != null && outbox.getClaimedUntil().isAfter(maintenant)) {
+                bloquees.add(outbox.getAggregateId());
+            } else if (!bloquees.contains(outbox.getAggregateId())) {
+                reserves.add(outbox);
+            }
+        }
+        if (!reserves.isEmpty()) {
+            outboxEventRepository.reserver(reserves.stream().map(OutboxEvent::getId).toList(), instanceId,
+                    maintenant.plus(lease));
+        }
+        return reserves;
+    }
+
+    /**
+     * Étapes 2 et 3 : envois sans transaction, puis enregistrement du résultat
+     * @return nombre d'événements publiés (0 si le lot contient un échec)
+     */
+    private int publierLot(List<OutboxEvent> lot) {
+        // Désérialisation puis enrichissement groupé (un seul appel user-service par lot), hors verrou
+        Map<Long, Object> events = new LinkedHashMap<>();
+        Map<Long, Exception> erreurs = new HashMap<>();
+        for (OutboxEvent outbox : lot) {
+            try {
+                events.put(outbox.getId(), objectMapper.readValue(outbox.getPayload(), Class.forName(outbox.getEventType())));
+            } catch (Exception e) {
+                erreurs.put(outbox.getId(), e);
+            }
+        }
+        Set<Object> nonEnrichis = outboxEnricher.enrichir(events.values());
+
+        // 2. Envois par vagues : un seul événement en vol par soutenance, le suivant part après son accusé.
+        //    Un échec arrête la soutenance ; ses événements suivants ne sont pas envoyés.
+        Map<String, ArrayDeque<OutboxEvent>> files = new LinkedHashMap<>();
+        lot.forEach(outbox -> files.computeIfAbsent(outbox.getAggregateId(), k -> new ArrayDeque<>()).add(outbox));
+        List<Long> publies = new ArrayList<>();
+        List<Echec> echecs = new ArrayList<>();
+        LocalDateTime limiteEnrichissement = LocalDateTime.now().minus(enrichmentMaxDelay);
+        while (!files.isEmpty()) {
+            Map<OutboxEvent, CompletableFuture<?>> envois = new LinkedHashMap<>();
+            Iterator<ArrayDeque<OutboxEvent>> iterateur = files.values().iterator();
+            while (iterateur.hasNext()) {
+                ArrayDeque<OutboxEvent> file = iterateur.next();
+                OutboxEvent outbox = file.poll();
+                Object event = events.get(outbox.getId());
+                if (event == null) {
+                    // Payload ou type illisible : inutile de réessayer
+                    Exception erreur = erreurs.get(outbox.getId());
+                    echecs.add(new Echec(outbox, erreur != null ? erreur.getMessage() : "Payload vide", true));
+                    iterateur.remove();
+                    continue;
+                }
+                // Destinataire non résolu : on réessaie, puis on envoie tel quel passé le délai max
+                if (nonEnrichis.contains(event) && outbox.getCreatedAt().isAfter(limiteEnrichissement)) {
+                    echecs.add(new Echec(outbox, "Destinataire non résolu (user-service indisponible)", false));
+                    iterateur.remove();
+                    continue;
+                }
+                envois.put(outbox, envoyer(outbox, event));
+                if (file.isEmpty()) iterateur.remove();
+            }
+
+            // Accusés de la vague (le producteur a regroupé les envois par partition)
+            envois.forEach((outbox, envoi) -> {
+                try {
+                    envoi.get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                    publies.add(outbox.getId());
+                } catch (Exception e) {
+                    echecs.add(new Echec(outbox, e.getCause() != null ? e.getCause().getMessage() : e.getMessage(), false));
+                    files.remove(outbox.getAggregateId());
+                }
+            });
+        }
+
+        // 3. Transaction courte : publiés, échecs, et libération des événements non traités
+        Set<Long> traites = new HashSet<>(publies);
+        echecs.forEach(e -> traites.add(e.outbox().getId()));
+        List<Long> aLiberer = lot.stream().map(OutboxEvent::getId).filter(id -> !traites.contains(id)).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime maintenant = LocalDateTime.now();
+            if (!publies.isEmpty()) outboxEventRepository.markPublished(publies, maintenant);
+            echecs.forEach(e -> enregistrerEchec(e, maintenant));
+            if (!aLiberer.isEmpty()) outboxEventRepository.liberer(aLiberer);
+        });
+        if (!publies.isEmpty()) log.info("✅ Outbox: {} événements publiés", publies.size());
+        return echecs.isEmpty() ? publies.size() : 0;
+    }
+
+    private CompletableFuture<?> envoyer(OutboxEvent outbox, Object event) {
+        try {
+            if (event instanceof JuryInvitationBatch batch) {
+                // Toutes les invitations d'un jury dans une transaction Kafka
+                return juryInvitationFanout.publier(batch);
+            }
+            return kafkaTemplate.send(outbox.getTopic(), outbox.getAggregateId(), event);
+        } catch (Exception e) {
+            // Ex: métadonnées du topic indisponibles (max.block.ms)
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void enregistrerEchec(Echec echec, LocalDateTime maintenant) {
+        OutboxEvent outbox = echec.outbox();
+        int tentatives = outbox.getAttempts() + 1;
+        String message = echec.message() != null && echec.message().length() > 1000
+                ? echec.message().substring(0, 1000) : echec.message();
+        if (echec.definitif() || tentatives >= maxAttempts) {
+            outboxEventRepository.enregistrerEchec(outbox.getId(), tentatives, message, null, maintenant);
+            log.error("☠️ Outbox #{} ({}) mis de côté après {} tentative(s): {}",
+                    outbox.getId(), outbox.getTopic(), tentatives, message);
+            return;
+        }
+        // Backoff exponentiel plafonné : retryBase, 2 x retryBase, 4 x retryBase... jusqu'à retryMax
+        Duration attente = retryBase.multipliedBy(1L << Math.min(tentatives - 1, 20));
+        if (attente.compareTo(retryMax) > 0) attente = retryMax;
+        outboxEventRepository.enregistrerEchec(outbox.getId(), tentatives, message, maintenant.plus(attente), null);
+        log.warn("⚠️ Échec publication outbox #{} ({}), tentative {}, reprise dans {}: {}",
+                outbox.getId(), outbox.getTopic(), tentatives, attente, message);
+    }
+}
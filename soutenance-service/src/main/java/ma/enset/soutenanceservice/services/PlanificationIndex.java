@@ -0,0 +1,350 @@
+package ma.enset.soutenanceservice.services;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.dto.ConflitPlanificationDTO;
+import ma.enset.soutenanceservice.entities.MembreJury;
+import ma.enset.soutenanceservice.entities.Soutenance;
+import ma.enset.soutenanceservice.enums.StatutSoutenance;
+import ma.enset.soutenanceservice.repositories.SoutenanceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static ma.enset.soutenanceservice.services.Transactions.apresTransaction;
+
+/**
+ * Index en mémoire des soutenances planifiées, par salle et par email de membre du jury.
+ *
+ * Chaque ressource a un TreeMap début → soutenances ; toutes les soutenances ayant la même durée,
+ * un créneau [début, début + durée) est en conflit avec toute soutenance qui commence dans
+ * ]début - durée, début + durée[ : une recherche O(log n) par ressource.
+ *
+ * Vérification et réservation se font sous le même verrou d'écriture, donc deux planifications
+ * concurrentes sur la même instance ne peuvent pas prendre le même créneau. Une réservation est
+ * annulée si la transaction échoue. L'index est reconstruit depuis la base au démarrage puis
+ * périodiquement (rattrape les écritures faites par d'autres instances) ; les modifications validées
+ * pendant la lecture de la base sont journalisées et rejouées sur le nouvel index.
+ */
+@Component
+@Slf4j
+public class PlanificationIndex {
+
+    public static final String SALLE = "SALLE";
+    public static final String JURY = "JURY";
+
+    // Garde-fou pour la recherche de créneaux libres
+    private static final int MAX_ITERATIONS = 2000;
+
+    private final SoutenanceRepository soutenanceRepository;
+    private final Duration dureeSoutenance;
+    private final LocalTime heureDebut;
+    private final LocalTime heureFin;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Creneau> parSoutenance = new HashMap<>();
+    private Map<String, TreeMap<LocalDateTime, Set<Long>>> parRessource = new HashMap<>();
+    // Réservations dont la transaction n'est pas terminée : rejouées après une reconstruction
+    private final Map<Long, Creneau> enCours = new HashMap<>();
+    // Modifications validées pendant une reconstruction (null hors reconstruction)
+    private List<Runnable> journal;
+
+    public PlanificationIndex(SoutenanceRepository soutenanceRepository,
+                              @Value("${planification.duree-soutenance:3h}") Duration dureeSoutenance,
+                              @Value("${planification.heure-debut:08:30}") LocalTime heureDebut,
+                              @Value("${planification.heure-fin:18:00}") LocalTime heureFin) {
+        this.soutenanceRepository = soutenanceRepository;
+        this.dureeSoutenance = dureeSoutenance;
+        this.heureDebut = heureDebut;
+        this.heureFin = heureFin;
+    }
+
+    private record Creneau(Long soutenanceId, LocalDateTime debut, LocalDateTime fin,
+                           String lieu, Set<String> ressources) {
+    }
+
+    // ========================================================
+    // CONSULTATION
+    // ========================================================
+
+    /**
+     * Conflits pour un créneau, en ignorant la soutenance elle-même (re-planification)
+     */
+    public List<ConflitPlanificationDTO> trouverConflits(Long soutenanceId, String lieu,
+                                                         Collection<String> emailsJury, LocalDateTime debut) {
+        lock.readLock().lock();
+        try {
+            return conflits(soutenanceId, ressources(lieu, emailsJury), debut);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Prochains créneaux libres (jours ouvrés, dans la plage horaire configurée) à partir d'une date
+     */
+    public List<LocalDateTime> proposerCreneaux(Long soutenanceId, String lieu, Collection<String> emailsJury,
+                                                LocalDateTime aPartirDe, int nombre) {
+        Set<String> ressources = ressources(lieu, emailsJury);
+        List<LocalDateTime> creneaux = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            LocalDateTime candidat = aPartirDe;
+            for (int i = 0; i < MAX_ITERATIONS && creneaux.size() < nombre; i++) {
+                DayOfWeek jour = candidat.getDayOfWeek();
+                if (jour == DayOfWeek.SATURDAY || jour == DayOfWeek.SUNDAY) {
+                    candidat = candidat.toLocalDate().plusDays(1).atTime(heureDebut);
+                    continue;
+                }
+                if (candidat.toLocalTime().isBefore(heureDebut)) {
+                    candidat = candidat.toLocalDate().atTime(heureDebut);
+                }
+                if (candidat.plus(dureeSoutenance).isAfter(candidat.toLocalDate().atTime(heureFin))) {
+                    candidat = candidat.toLocalDate().plusDays(1).atTime(heureDebut);
+                    continue;
+                }
+
+                List<ConflitPlanificationDTO> conflits = conflits(soutenanceId, ressources, candidat);
+                if (conflits.isEmpty()) {
+                    creneaux.add(candidat);
+                    candidat = candidat.plus(dureeSoutenance);
+                } else {
+                    // On saute directement après le conflit qui se termine le plus tard
+                    candidat = conflits.stream().map(ConflitPlanificationDTO::getFin)
+                            .max(LocalDateTime::compareTo).orElse(candidat.plus(dureeSoutenance));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return creneaux;
+    }
+
+    // ========================================================
+    // MISE À JOUR
+    // ========================================================
+
+    /**
+     * Vérifie puis réserve le créneau de façon atomique.
+     * @throws RuntimeException si la salle ou un membre du jury est déjà pris
+     */
+    public void reserver(Soutenance soutenance, String lieu, LocalDateTime debut) {
+        Creneau creneau = creneau(soutenance.getId(), lieu, emails(soutenance), debut);
+
+        lock.writeLock().lock();
+        try {
+            List<ConflitPlanificationDTO> conflits = conflits(soutenance.getId(), creneau.ressources(), debut);
+            if (!conflits.isEmpty()) {
+                throw new RuntimeException("Conflit de planification: " + decrire(conflits));
+            }
+            ajouter(creneau);
+            enCours.put(creneau.soutenanceId(), creneau);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        apresTransaction(committed -> {
+            lock.writeLock().lock();
+            try {
+                enCours.remove(creneau.soutenanceId());
+                if (committed) journaliser(() -> ajouter(creneau));
+                else retirerSansVerrou(creneau.soutenanceId());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * (Ré)indexe une soutenance planifiée sans contrôle (ex: composition du jury modifiée)
+     */
+    public void indexer(Soutenance soutenance) {
+        if (soutenance.getStatut() != StatutSoutenance.PLANIFIEE
+                || soutenance.getDateSoutenance() == null || soutenance.getHeureSoutenance() == null) {
+            retirer(soutenance.getId());
+            return;
+        }
+        Creneau creneau = creneau(soutenance.getId(), soutenance.getLieuSoutenance(), emails(soutenance),
+                LocalDateTime.of(soutenance.getDateSoutenance(), soutenance.getHeureSoutenance()));
+        apresTransaction(committed -> {
+            if (!committed) return;
+            lock.writeLock().lock();
+            try {
+                ajouter(creneau);
+                journaliser(() -> ajouter(creneau));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Libère le créneau d'une soutenance (après commit)
+     */
+    public void retirer(Long soutenanceId) {
+        apresTransaction(committed -> {
+            if (!committed) return;
+            lock.writeLock().lock();
+            try {
+                retirerSansVerrou(soutenanceId);
+                journaliser(() -> retirerSansVerrou(soutenanceId));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Reconstruction complète depuis la base (démarrage + réconciliation périodique)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${planification.reconciliation-ms:300000}",
+            fixedDelayString = "${planification.reconciliation-ms:300000}")
+    public synchronized void reconstruire() {
+        lock.writeLock().lock();
+        try {
+            journal = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Soutenance> planifiees;
+        try {
+            planifiees = soutenanceRepository.findWithJuryByStatut(StatutSoutenance.PLANIFIEE);
+        } catch (Exception e) {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.warn("⚠️ Reconstruction de l'index de planification impossible: {}", e.getMessage());
+            return;
+        }
+
+        List<Creneau> creneaux = new ArrayList<>();
+        for (Soutenance s : planifiees) {
+            if (s.getDateSoutenance() == null || s.getHeureSoutenance() == null) continue;
+            creneaux.add(creneau(s.getId(), s.getLieuSoutenance(), emails(s),
+                    LocalDateTime.of(s.getDateSoutenance(), s.getHeureSoutenance())));
+        }
+
+        lock.writeLock().lock();
+        try {
+            parSoutenance = new HashMap<>();
+            parRessource = new HashMap<>();
+            creneaux.forEach(this::ajouter);
+            // Validé après le début de la lecture, puis réservations en cours (les plus récentes)
+            journal.forEach(Runnable::run);
+            journal = null;
+            enCours.values().forEach(this::ajouter);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("📅 Index de planification reconstruit: {} soutenances planifiées", creneaux.size());
+    }
+
+    // ========================================================
+    // INTERNE (appelé sous verrou)
+    // ========================================================
+
+    private List<ConflitPlanificationDTO> conflits(Long soutenanceId, Set<String> ressources, LocalDateTime debut) {
+        List<ConflitPlanificationDTO> conflits = new ArrayList<>();
+        for (String ressource : ressources) {
+            TreeMap<LocalDateTime, Set<Long>> arbre = parRessource.get(ressource);
+            if (arbre == null) continue;
+            NavigableMap<LocalDateTime, Set<Long>> chevauchements =
+                    arbre.subMap(debut.minus(dureeSoutenance), false, debut.plus(dureeSoutenance), false);
+            for (Set<Long> ids : chevauchements.values()) {
+                for (Long id : ids) {
+                    if (id.equals(soutenanceId)) continue;
+                    Creneau autre = parSoutenance.get(id);
+                    int sep = ressource.indexOf(':');
+                    conflits.add(new ConflitPlanificationDTO(ressource.substring(0, sep), ressource.substring(sep + 1),
+                            id, autre.debut(), autre.fin()));
+                }
+            }
+        }
+        return conflits;
+    }
+
+    private void journaliser(Runnable modification) {
+        if (journal != null) journal.add(modification);
+    }
+
+    private void ajouter(Creneau creneau) {
+        retirerSansVerrou(creneau.soutenanceId());
+        parSoutenance.put(creneau.soutenanceId(), creneau);
+        for (String ressource : creneau.ressources()) {
+            parRessource.computeIfAbsent(ressource, k -> new TreeMap<>())
+                    .computeIfAbsent(creneau.debut(), k -> new LinkedHashSet<>())
+                    .add(creneau.soutenanceId());
+        }
+    }
+
+    private void retirerSansVerrou(Long soutenanceId) {
+        Creneau ancien = parSoutenance.remove(soutenanceId);
+        if (ancien == null) return;
+        for (String ressource : ancien.ressources()) {
+            TreeMap<LocalDateTime, Set<Long>> arbre = parRessource.get(ressource);
+            if (arbre == null) continue;
+            Set<Long> ids = arbre.get(ancien.debut());
+            if (ids != null) {
+                ids.remove(soutenanceId);
+                if (ids.isEmpty()) arbre.remove(ancien.debut());
+            }
+            if (arbre.isEmpty()) parRessource.remove(ressource);
+        }
+    }
+
+    private Creneau creneau(Long soutenanceId, String lieu, Collection<String> emails, LocalDateTime debut) {
+        return new Creneau(soutenanceId, debut, debut.plus(dureeSoutenance), lieu, ressources(lieu, emails));
+    }
+
+    private Set<String> ressources(String lieu, Collection<String> emails) {
+        Set<String> ressources = new LinkedHashSet<>();
+        if (lieu != null && !lieu.isBlank()) {
+            ressources.add(SALLE + ":" + lieu.trim().toLowerCase());
+        }
+        if (emails != null) {
+            for (String email : emails) {
+                if (email != null && !email.isBlank()) ressources.add(JURY + ":" + email.trim().toLowerCase());
+            }
+        }
+        return ressources;
+    }
+
+    private List<String> emails(Soutenance soutenance) {
+        if (soutenance.getMembresJury() == null) return List.of();
+        return soutenance.getMembresJury().stream().map(MembreJury::getEmail).toList();
+    }
+
+    private String decrire(List<ConflitPlanificationDTO> conflits) {
+        StringBuilder sb = new StringBuilder();
+        for (ConflitPlanificationDTO c : conflits) {
+            if (!sb.isEmpty()) sb.append("; ");
+            sb.append(SALLE.equals(c.getType()) ? "salle " : "membre du jury ")
+                    .append(c.getRessource())
+                    .append(" déjà pris (soutenance #").append(c.getSoutenanceId())
+                    .append(", ").append(c.getDebut()).append(" → ").append(c.getFin().toLocalTime()).append(")");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,245 @@
+package ma.enset.soutenanceservice.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.dto.ResultatRechercheDTO;
+import ma.enset.soutenanceservice.entities.Soutenance;
+import ma.enset.soutenanceservice.enums.StatutSoutenance;
+import ma.enset.soutenanceservice.repositories.SoutenanceRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static ma.enset.soutenanceservice.services.Transactions.apresCommit;
+
+/**
+ * Index plein texte en mémoire sur titreThese, resume et motsCles.
+ *
+ * Index inversé terme → (soutenance → fréquence pondérée), trié (TreeMap) pour les requêtes
+ * par préfixe. Classement BM25 ; une occurrence compte 3 dans le titre, 2 dans les mots-clés,
+ * 1 dans le résumé. Le dernier mot de la requête (ou tout mot terminé par '*') est traité
+ * comme un préfixe : « reseau neuro » trouve « réseaux neuronaux ».
+ *
+ * Construit au démarrage, mis à jour après commit à chaque écriture JPA
+ * ({@link SoutenanceIndexListener}) et reconstruit périodiquement. Les mises à jour validées
+ * pendant la lecture de la base sont journalisées puis rejouées sur l'index reconstruit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RechercheTheseService {
+
+    private static final int POIDS_TITRE = 3;
+    private static final int POIDS_MOTS_CLES = 2;
+    private static final int POIDS_RESUME = 1;
+    // BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Un terme trouvé par préfixe pèse un peu moins qu'un terme exact
+    private static final double POIDS_PREFIXE = 0.8;
+    private static final int MAX_EXPANSIONS = 50;
+    private static final int LIMITE_MAX = 100;
+
+    private final SoutenanceRepository soutenanceRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private long longueurTotale;
+    // Mises à jour validées pendant une reconstruction (null hors reconstruction)
+    private List<Runnable> journal;
+
+    private record Document(Long id, String titreThese, String motsCles, StatutSoutenance statut,
+                            LocalDate dateSoutenance, Map<String, Integer> frequences, int longueur) {
+    }
+
+    // ========================================================
+    // RECHERCHE
+    // ========================================================
+
+    public List<ResultatRechercheDTO> rechercher(String requete, StatutSoutenance statut, int limite) {
+        if (requete == null || requete.isBlank()) {
+            throw new IllegalArgumentException("Requête de recherche vide");
+        }
+        int n = Math.max(1, Math.min(limite, LIMITE_MAX));
+        String[] saisies = requete.trim().split("\\s+");
+
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) return List.of();
+            double longueurMoyenne = (double) longueurTotale / documents.size();
+
+            Map<Long, Double> scores = new HashMap<>();
+            Map<Long, List<String>> trouves = new HashMap<>();
+
+            for (int i = 0; i < saisies.length; i++) {
+                String saisie = saisies[i];
+                boolean prefixe = saisie.endsWith("*") || i == saisies.length - 1;
+
+                // Termes de la requête : forme exacte + éventuelles expansions du préfixe
+                Map<String, Double> termes = new LinkedHashMap<>();
+                Tokeniseur.mots(saisie).forEach(t -> termes.put(t, 1.0));
+                String debut = Tokeniseur.prefixe(saisie);
+                if (prefixe && debut.length() >= 2) {
+                    NavigableMap<String, Map<Long, Integer>> suite =
+                            postings.subMap(debut, true, debut + Character.MAX_VALUE, true);
+                    suite.keySet().stream().limit(MAX_EXPANSIONS).forEach(t -> termes.putIfAbsent(t, POIDS_PREFIXE));
+                }
+
+                for (Map.Entry<String, Double> terme : termes.entrySet()) {
+                    Map<Long, Integer> liste = postings.get(terme.getKey());
+                    if (liste == null) continue;
+                    double idf = Math.log(1.0 + (documents.size() - liste.size() + 0.5) / (liste.size() + 0.5));
+                    for (Map.Entry<Long, Integer> posting : liste.entrySet()) {
+                        Document doc = documents.get(posting.getKey());
+                        if (statut != null && doc.statut() != statut) continue;
+                        double tf = posting.getValue();
+                        double bm25 = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * doc.longueur() / longueurMoyenne));
+                        scores.merge(doc.id(), terme.getValue() * bm25, Double::sum);
+                        List<String> liste2 = trouves.computeIfAbsent(doc.id(), k -> new ArrayList<>());
+                        if (!liste2.contains(terme.getKey())) liste2.add(terme.getKey());
+                    }
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                    .limit(n)
+                    .map(e -> {
+                        Document doc = documents.get(e.getKey());
+                        return ResultatRechercheDTO.builder()
+                                .soutenanceId(doc.id())
+                                .titreThese(doc.titreThese())
+                                .motsCles(doc.motsCles())
+                                .statut(doc.statut())
+                                .dateSoutenance(doc.dateSoutenance())
+                                .score(e.getValue())
+                                .termesTrouves(trouves.get(doc.id()))
+                                .build();
+                    })
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ========================================================
+    // MISE À JOUR DE L'INDEX
+    // ========================================================
+
+    /**
+     * Appelé par le listener JPA : l'index n'est modifié qu'après commit
+     */
+    void onEnregistrement(Soutenance soutenance) {
+        Document doc = document(soutenance);
+        apresCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                remplacerSansVerrou(doc);
+                journaliser(() -> remplacerSansVerrou(doc));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    void onSuppression(Long id) {
+        apresCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                retirerSansVerrou(id);
+                journaliser(() -> retirerSansVerrou(id));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${recherche-theses.reconstruction-ms:900000}",
+            fixedDelayString = "${recherche-theses.reconstruction-ms:900000}")
+    public synchronized void reconstruire() {
+        lock.writeLock().lock();
+        try {
+            journal = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Document> docs;
+        try {
+            docs = soutenanceRepository.findAll().stream().map(this::document).toList();
+        } catch (Exception e) {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.warn("⚠️ Reconstruction de l'index de recherche impossible: {}", e.getMessage());
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            longueurTotale = 0;
+            docs.forEach(this::ajouterSansVerrou);
+            journal.forEach(Runnable::run);
+            journal = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("🔎 Index de recherche des thèses construit: {} soutenances, {} termes", docs.size(), postings.size());
+    }
+
+    private Document document(Soutenance soutenance) {
+        Map<String, Integer> frequences = new HashMap<>();
+        Tokeniseur.mots(soutenance.getTitreThese()).forEach(t -> frequences.merge(t, POIDS_TITRE, Integer::sum));
+        Tokeniseur.mots(soutenance.getMotsCles()).forEach(t -> frequences.merge(t, POIDS_MOTS_CLES, Integer::sum));
+        Tokeniseur.mots(soutenance.getResume()).forEach(t -> frequences.merge(t, POIDS_RESUME, Integer::sum));
+        int longueur = frequences.values().stream().mapToInt(Integer::intValue).sum();
+        return new Document(soutenance.getId(), soutenance.getTitreThese(), soutenance.getMotsCles(),
+                soutenance.getStatut(), soutenance.getDateSoutenance(), frequences, longueur);
+    }
+
+    private void journaliser(Runnable miseAJour) {
+        if (journal != null) journal.add(miseAJour);
+    }
+
+    private void remplacerSansVerrou(Document doc) {
+        retirerSansVerrou(doc.id());
+        ajouterSansVerrou(doc);
+    }
+
+    private void ajouterSansVerrou(Document doc) {
+        documents.put(doc.id(), doc);
+        longueurTotale += doc.longueur();
+        doc.frequences().forEach((terme, tf) -> postings.computeIfAbsent(terme, k -> new HashMap<>()).put(doc.id(), tf));
+    }
+
+    private void retirerSansVerrou(Long id) {
+        Document ancien = documents.remove(id);
+        if (ancien == null) return;
+        longueurTotale -= ancien.longueur();
+        for (String terme : ancien.frequences().keySet()) {
+            Map<Long, Integer> liste = postings.get(terme);
+            if (liste == null) continue;
+            liste.remove(id);
+            if (liste.isEmpty()) postings.remove(terme);
+        }
+    }
+}
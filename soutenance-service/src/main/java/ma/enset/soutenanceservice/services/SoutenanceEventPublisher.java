@@ -1,103 +1,92 @@
 package ma.enset.soutenanceservice.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ma.enset.soutenanceservice.config.KafkaTopics;
 import ma.enset.soutenanceservice.entities.MembreJury;
+import ma.enset.soutenanceservice.entities.OutboxEvent;
 import ma.enset.soutenanceservice.entities.Soutenance;
+import ma.enset.soutenanceservice.events.BaseEvent;
+import ma.enset.soutenanceservice.events.JuryInvitationBatch;
 import ma.enset.soutenanceservice.events.JuryInvitationEvent;
 import ma.enset.soutenanceservice.events.SoutenanceCreatedEvent;
 import ma.enset.soutenanceservice.events.SoutenanceStatusChangedEvent;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
+import ma.enset.soutenanceservice.repositories.OutboxEventRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 
+/**
+ * Publication des événements soutenance via une outbox transactionnelle :
+ * rien n'est envoyé à Kafka sur le thread de la requête.
+ */
 @Service
+@Transactional
 @RequiredArgsConstructor
 @Slf4j
 public class SoutenanceEventPublisher {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
 
     /**
      * Publie un événement de création de soutenance
      */
     public void publishSoutenanceCreated(SoutenanceCreatedEvent event) {
-        event.initializeEvent();
         log.info("📤 Publication événement SOUTENANCE_CREATED - ID: {}, Doctorant: {} {}",
                 event.getSoutenanceId(), event.getDoctorantPrenom(), event.getDoctorantNom());
-
-        CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(
-                KafkaTopics.SOUTENANCE_CREATED,
-                String.valueOf(event.getSoutenanceId()),
-                event
-        );
-
-        future.whenComplete((result, ex) -> {
-            if (ex == null) {
-                log.info("✅ Événement SOUTENANCE_CREATED publié - Partition: {}, Offset: {}",
-                        result.getRecordMetadata().partition(),
-                        result.getRecordMetadata().offset());
-            } else {
-                log.error("❌ Échec publication SOUTENANCE_CREATED: {}", ex.getMessage(), ex);
-            }
-        });
+        enqueue(KafkaTopics.SOUTENANCE_CREATED, event.getSoutenanceId(), event);
     }
 
     /**
      * Publie un événement de changement de statut
      */
     public void publishSoutenanceStatusChanged(SoutenanceStatusChangedEvent event) {
-        event.initializeEvent();
         log.info("📤 Publication événement SOUTENANCE_STATUS_CHANGED - ID: {}, {} -> {}",
                 event.getSoutenanceId(), event.getOldStatus(), event.getNewStatus());
-
-        CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(
-                KafkaTopics.SOUTENANCE_STATUS_CHANGED,
-                String.valueOf(event.getSoutenanceId()),
-                event
-        );
-
-        future.whenComplete((result, ex) -> {
-            if (ex == null) {
-                log.info("✅ Événement SOUTENANCE_STATUS_CHANGED publié");
-            } else {
-                log.error("❌ Échec publication: {}", ex.getMessage(), ex);
-            }
-        });
+        enqueue(KafkaTopics.SOUTENANCE_STATUS_CHANGED, event.getSoutenanceId(), event);
     }
 
     /**
      * Publie un événement de planification de soutenance
      */
     public void publishSoutenanceScheduled(SoutenanceStatusChangedEvent event) {
-        event.initializeEvent();
         log.info("📤 Publication événement SOUTENANCE_SCHEDULED - ID: {}, Date: {}",
                 event.getSoutenanceId(), event.getDateSoutenance());
-
-        kafkaTemplate.send(KafkaTopics.SOUTENANCE_SCHEDULED, String.valueOf(event.getSoutenanceId()), event);
+        enqueue(KafkaTopics.SOUTENANCE_SCHEDULED, event.getSoutenanceId(), event);
     }
 
     /**
      * Publie une invitation pour un membre du jury
      */
     public void publishJuryInvitation(JuryInvitationEvent event) {
-        event.initializeEvent();
         log.info("📤 Publication événement JURY_INVITATION - Membre: {}, Rôle: {}",
                 event.getMembreJuryNom(), event.getRoleJury());
-
-        kafkaTemplate.send(KafkaTopics.JURY_INVITATION, String.valueOf(event.getSoutenanceId()), event);
+        enqueue(KafkaTopics.JURY_INVITATION, event.getSoutenanceId(), event);
     }
 
     /**
-     * Publie des invitations pour tous les membres du jury d'une soutenance
+     * Publie les invitations de tous les membres du jury d'une soutenance.
+     * Une seule entrée d'outbox : le relais les envoie dans une transaction Kafka (tout ou rien).
+     * doctorantNom est complété à l'envoi.
      */
-    public void publishAllJuryInvitations(Soutenance soutenance, String doctorantNom, List<MembreJury> membresJury) {
+    public void publishAllJuryInvitations(Soutenance soutenance, List<MembreJury> membresJury) {
         log.info("📤 Publication invitations pour {} membres du jury - Soutenance ID: {}",
                 membresJury.size(), soutenance.getId());
+        if (membresJury.isEmpty()) return;
+
+        JuryInvitationBatch batch = JuryInvitationBatch.builder()
+                .soutenanceId(soutenance.getId())
+                .doctorantId(soutenance.getDoctorantId())
+                .build();
 
         for (MembreJury membre : membresJury) {
             JuryInvitationEvent event = JuryInvitationEvent.builder()
@@ -105,7 +94,6 @@ public class SoutenanceEventPublisher {
                     .membreJuryEmail(membre.getEmail())
                     .membreJuryNom(membre.getNom() + " " + membre.getPrenom())
                     .roleJury(membre.getRole().name())
-                    .doctorantNom(doctorantNom)
                     .sujetThese(soutenance.getTitreThese())
                     // ↓↓↓ CONVERSION LocalDate -> LocalDateTime ↓↓↓
                     .dateSoutenance(soutenance.getDateSoutenance() != null
@@ -116,8 +104,70 @@ public class SoutenanceEventPublisher {
                     .lieu(soutenance.getLieuSoutenance())
                     .salle(soutenance.getLieuSoutenance())
                     .build();
+            event.initializeEvent();
+            batch.getInvitations().add(event);
+        }
+
+        enqueue(KafkaTopics.JURY_INVITATION, soutenance.getId(), batch);
+    }
+
+    /**
+     * Publie un lot d'événements de changement de statut : insertion en batch JDBC dans l'outbox
+     * (une seule requête envoyée pour tout le lot, dans la transaction de l'appelant).
+     */
+    public void publishSoutenanceStatusChangedBatch(List<SoutenanceStatusChangedEvent> events) {
+        if (events.isEmpty()) return;
+        log.info("📤 Publication de {} événements SOUTENANCE_STATUS_CHANGED (lot)", events.size());
+
+        List<Object[]> lignes = new ArrayList<>(events.size());
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        for (SoutenanceStatusChangedEvent event : events) {
+            event.initializeEvent();
+            try {
+                lignes.add(new Object[]{KafkaTopics.SOUTENANCE_STATUS_CHANGED, String.valueOf(event.getSoutenanceId()),
+                        event.getClass().getName(), objectMapper.writeValueAsString(event), maintenant});
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Sérialisation de l'événement impossible: " + e.getMessage());
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_events (topic, aggregate_id, event_type, payload, attempts, created_at) " +
+                "VALUES (?, ?, ?, ?, 0, ?)", lignes);
+    }
 
-            publishJuryInvitation(event);
+    /**
+     * Événement minimal : ids, statuts et données locales uniquement.
+     * Email et nom du doctorant sont ajoutés en différé, par lot, par OutboxEnricher.
+     */
+    public SoutenanceStatusChangedEvent buildStatusChangedEvent(Soutenance soutenance, String oldStatus,
+                                                                String newStatus, String commentaire) {
+        return SoutenanceStatusChangedEvent.builder()
+                .soutenanceId(soutenance.getId())
+                .doctorantId(soutenance.getDoctorantId())
+                .sujetThese(soutenance.getTitreThese())
+                .oldStatus(oldStatus)
+                .newStatus(newStatus)
+                .dateSoutenance(soutenance.getDateSoutenance() != null && soutenance.getHeureSoutenance() != null
+                        ? LocalDateTime.of(soutenance.getDateSoutenance(), soutenance.getHeureSoutenance()) : null)
+                .lieu(soutenance.getLieuSoutenance())
+                .commentaire(commentaire)
+                .build();
+    }
+
+    /**
+     * Écrit l'événement dans l'outbox, dans la transaction de l'appelant :
+     * il n'est envoyé à Kafka (par OutboxRelay) que si la transaction est validée.
+     */
+    private void enqueue(String topic, Long soutenanceId, Object event) {
+        if (event instanceof BaseEvent baseEvent) baseEvent.initializeEvent();
+        try {
+            OutboxEvent outbox = new OutboxEvent();
+            outbox.setTopic(topic);
+            outbox.setAggregateId(String.valueOf(soutenanceId));
+            outbox.setEventType(event.getClass().getName());
+            outbox.setPayload(objectMapper.writeValueAsString(event));
+            outboxEventRepository.save(outbox);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Sérialisation de l'événement impossible: " + e.getMessage());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package ma.enset.soutenanceservice.services;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import ma.enset.soutenanceservice.entities.Soutenance;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA de Soutenance : répercute chaque écriture sur l'index de recherche des thèses.
+ * Même principe que {@link JuryDisponibleListener} (index résolu à la demande).
+ */
+@Component
+public class SoutenanceIndexListener {
+
+    private final ObjectProvider<RechercheTheseService> rechercheTheseService;
+
+    public SoutenanceIndexListener(ObjectProvider<RechercheTheseService> rechercheTheseService) {
+        this.rechercheTheseService = rechercheTheseService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void apresEnregistrement(Soutenance soutenance) {
+        rechercheTheseService.ifAvailable(service -> service.onEnregistrement(soutenance));
+    }
+
+    @PostRemove
+    public void apresSuppression(Soutenance soutenance) {
+        rechercheTheseService.ifAvailable(service -> service.onSuppression(soutenance.getId()));
+    }
+}
@@ -1,5 +1,11 @@
 package ma.enset.soutenanceservice.services;
 
+import ma.enset.soutenanceservice.dto.ConflitPlanificationDTO;
+import ma.enset.soutenanceservice.dto.JuryRecommandationDTO;
+import ma.enset.soutenanceservice.dto.MembreJuryDTO;
+import ma.enset.soutenanceservice.dto.SoutenanceDetailDTO;
+import ma.enset.soutenanceservice.dto.SoutenancePageDTO;
+import ma.enset.soutenanceservice.dto.SoutenanceSummaryDTO;
 import ma.enset.soutenanceservice.entities.JuryDisponible;
 import ma.enset.soutenanceservice.entities.MembreJury;
 import ma.enset.soutenanceservice.entities.Soutenance;
@@ -8,8 +14,10 @@ import ma.enset.soutenanceservice.enums.StatutSoutenance;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface SoutenanceService {
@@ -28,15 +36,32 @@ public interface SoutenanceService {
 
     void deleteSoutenance(Long id);
 
-    Optional<Soutenance> getSoutenanceById(Long id);
+    // Lectures : vues projetées (résumé, détail, jury) plutôt que l'entité
 
-    List<Soutenance> getAllSoutenances();
+    Optional<SoutenanceDetailDTO> getSoutenanceById(Long id);
 
-    List<Soutenance> getSoutenancesByDoctorant(Long doctorantId);
+    Optional<List<MembreJuryDTO>> getMembresJury(Long soutenanceId);
 
-    List<Soutenance> getSoutenancesByDirecteur(Long directeurId);
+    List<SoutenanceSummaryDTO> getAllSoutenances();
 
-    List<Soutenance> getSoutenancesByStatut(StatutSoutenance statut);
+    List<SoutenanceSummaryDTO> getSoutenancesByDoctorant(Long doctorantId);
+
+    List<SoutenanceSummaryDTO> getSoutenancesByDirecteur(Long directeurId);
+
+    List<SoutenanceSummaryDTO> getSoutenancesByStatut(StatutSoutenance statut);
+
+    /**
+     * Nombre de soutenances par statut (sans accès base)
+     */
+    Map<String, Long> getCompteursParStatut();
+
+    /**
+     * Liste paginée par curseur (keyset), filtres optionnels
+     * @param cursor - null pour la première page, sinon nextCursor de la page précédente
+     * @param dateDebut / dateFin - bornes sur la date de création (dateFin incluse)
+     */
+    SoutenancePageDTO getSoutenancesPage(String cursor, int size, StatutSoutenance statut, Long directeurId,
+                                         LocalDate dateDebut, LocalDate dateFin);
 
     // ========================================================
     // ÉTAPE 1: DIRECTEUR - Valide les prérequis
@@ -66,6 +91,12 @@ public interface SoutenanceService {
      */
     Optional<JuryDisponible> getJuryDisponibleById(Long id);
 
+    /**
+     * Classer les membres disponibles pour une soutenance (spécialité vs mots-clés, charge actuelle)
+     */
+    List<JuryRecommandationDTO> recommanderJury(Long soutenanceId, RoleJury role, String grade,
+                                                String etablissement, int limite);
+
     // ========================================================
     // ÉTAPE 2: DIRECTEUR - Propose le jury
     // PREREQUIS_VALIDES → JURY_PROPOSE
@@ -96,6 +127,8 @@ public interface SoutenanceService {
 
     Soutenance planifierSoutenance(Long soutenanceId, LocalDate date, LocalTime heure, String lieu);
     Soutenance refuserPlanification(Long soutenanceId, String commentaire);
+    List<ConflitPlanificationDTO> verifierConflits(Long soutenanceId, LocalDate date, LocalTime heure, String lieu);
+    List<LocalDateTime> proposerCreneauxLibres(Long soutenanceId, LocalDate aPartirDe, String lieu, int nombre);
 
     // ========================================================
     // ÉTAPE 6: RÉSULTAT
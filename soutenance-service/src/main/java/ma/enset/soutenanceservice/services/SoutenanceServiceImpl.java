@@ -2,7 +2,12 @@ package ma.enset.soutenanceservice.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import ma.enset.soutenanceservice.clients.UserServiceClient;
+import ma.enset.soutenanceservice.dto.ConflitPlanificationDTO;
+import ma.enset.soutenanceservice.dto.JuryRecommandationDTO;
+import ma.enset.soutenanceservice.dto.MembreJuryDTO;
+import ma.enset.soutenanceservice.dto.SoutenanceDetailDTO;
+import ma.enset.soutenanceservice.dto.SoutenancePageDTO;
+import ma.enset.soutenanceservice.dto.SoutenanceSummaryDTO;
 import ma.enset.soutenanceservice.dto.UserDTO;
 import ma.enset.soutenanceservice.entities.JuryDisponible;
 import ma.enset.soutenanceservice.entities.MembreJury;
@@ -11,24 +16,26 @@ import ma.enset.soutenanceservice.enums.RoleJury;
 import ma.enset.soutenanceservice.enums.StatutSoutenance;
 import ma.enset.soutenanceservice.events.SoutenanceCreatedEvent;
 import ma.enset.soutenanceservice.events.SoutenanceStatusChangedEvent;
-import ma.enset.soutenanceservice.repositories.JuryDisponibleRepository;
 import ma.enset.soutenanceservice.repositories.MembreJuryRepository;
 import ma.enset.soutenanceservice.repositories.SoutenanceRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -38,11 +45,16 @@ public class SoutenanceServiceImpl implements SoutenanceService {
 
     private final SoutenanceRepository soutenanceRepository;
     private final MembreJuryRepository membreJuryRepository;
-    private final JuryDisponibleRepository juryDisponibleRepository;
-    private final UserServiceClient userServiceClient;
+    private final UserCacheService userCacheService;
     private final SoutenanceEventPublisher eventPublisher;
+    private final FileStorageService fileStorageService;
+    private final PlanificationIndex planificationIndex;
+    private final JuryRecommandationService juryRecommandationService;
+    private final StatutCompteurs statutCompteurs;
+    private final SoutenanceStreamService soutenanceStreamService;
+    private final CalendrierService calendrierService;
 
-    private final Path rootLocation = Paths.get("uploads/soutenances");
+    private static final int MAX_PAGE_SIZE = 100;
 
     // ========================================================
     // CRUD DE BASE
@@ -56,9 +68,9 @@ public class SoutenanceServiceImpl implements SoutenanceService {
         UserDTO directeur = null;
 
         try {
-            doctorant = userServiceClient.getUserById(soutenance.getDoctorantId());
-            directeur = userServiceClient.getUserById(soutenance.getDirecteurId());
-            log.info("Doctorant vérifié: {} {} (Pubs: {}, Conf: {}, Formation: {}h)",
+            doctorant = userCacheService.getUser(soutenance.getDoctorantId());
+            directeur = userCacheService.getUser(soutenance.getDirecteurId());
+            if (doctorant != null) log.info("Doctorant vérifié: {} {} (Pubs: {}, Conf: {}, Formation: {}h)",
                     doctorant.getPrenom(), doctorant.getNom(),
                     doctorant.getNbPublications(), doctorant.getNbConferences(), doctorant.getHeuresFormation());
         } catch (Exception e) {
@@ -66,7 +78,9 @@ public class SoutenanceServiceImpl implements SoutenanceService {
             // On continue même si le User Service est down, pour ne pas bloquer le test
         }
 
+        soutenance.setVersion(null); // attribuée par Hibernate (sinon save() ferait un merge)
         Soutenance saved = soutenanceRepository.save(soutenance);
+        statutCompteurs.creation(saved.getStatut());
 
         try {
             SoutenanceCreatedEvent event = SoutenanceCreatedEvent.builder()
@@ -93,9 +107,9 @@ public class SoutenanceServiceImpl implements SoutenanceService {
                                        MultipartFile manuscrit, MultipartFile rapportAntiPlagiat, MultipartFile autorisation) {
         log.info("Soumission demande soutenance pour doctorant: {}", doctorantId);
 
-        String manuscritPath = saveFile(manuscrit, "manuscrit");
-        String rapportPath = saveFile(rapportAntiPlagiat, "anti-plagiat");
-        String autorisationPath = (autorisation != null && !autorisation.isEmpty()) ? saveFile(autorisation, "autorisation") : null;
+        String manuscritPath = fileStorageService.saveFile(manuscrit);
+        String rapportPath = fileStorageService.saveFile(rapportAntiPlagiat);
+        String autorisationPath = fileStorageService.saveFile(autorisation);
 
         Soutenance soutenance = new Soutenance();
         soutenance.setTitreThese(titre);
@@ -109,29 +123,15 @@ public class SoutenanceServiceImpl implements SoutenanceService {
         return createSoutenance(soutenance);
     }
 
-    private String saveFile(MultipartFile file, String prefix) {
-        try {
-            if (file == null || file.isEmpty()) return null;
-            if (!Files.exists(rootLocation)) Files.createDirectories(rootLocation);
-
-            String extension = "";
-            if (file.getOriginalFilename() != null && file.getOriginalFilename().contains(".")) {
-                extension = file.getOriginalFilename().substring(file.getOriginalFilename().lastIndexOf("."));
-            }
-
-            String filename = prefix + "_" + UUID.randomUUID() + extension;
-            Path destination = rootLocation.resolve(filename);
-            Files.copy(file.getInputStream(), destination, StandardCopyOption.REPLACE_EXISTING);
-            return filename;
-        } catch (IOException e) {
-            throw new RuntimeException("Erreur lors de la sauvegarde du fichier: " + e.getMessage());
-        }
-    }
-
     @Override
     public Soutenance updateSoutenance(Long id, Soutenance soutenance) {
         return soutenanceRepository.findById(id)
                 .map(existing -> {
+                    // Version lue par le client : refus si quelqu'un a modifié la soutenance depuis
+                    if (soutenance.getVersion() != null && !soutenance.getVersion().equals(existing.getVersion())) {
+                        throw new ConflitConcurrentException("La soutenance a été modifiée entre-temps par un autre utilisateur. "
+                                + "Rechargez-la puis réessayez.", null);
+                    }
                     existing.setTitreThese(soutenance.getTitreThese());
                     existing.setResume(soutenance.getResume());
                     existing.setMotsCles(soutenance.getMotsCles());
@@ -142,42 +142,105 @@ public class SoutenanceServiceImpl implements SoutenanceService {
 
     @Override
     public void deleteSoutenance(Long id) {
-        soutenanceRepository.deleteById(id);
+        soutenanceRepository.findById(id).ifPresent(soutenance -> {
+            fileStorageService.release(soutenance.getCheminManuscrit());
+            fileStorageService.release(soutenance.getCheminRapportAntiPlagiat());
+            fileStorageService.release(soutenance.getCheminRapportPublications());
+            fileStorageService.release(soutenance.getCheminAutorisation());
+            planificationIndex.retirer(id);
+            calendrierService.retirer(id);
+            statutCompteurs.suppression(soutenance.getStatut());
+            soutenanceRepository.delete(soutenance);
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<SoutenanceDetailDTO> getSoutenanceById(Long id) {
+        Optional<SoutenanceDetailDTO> detail = soutenanceRepository.findDetailById(id);
+        detail.ifPresent(d -> {
+            d.setMembresJury(soutenanceRepository.findMembresJuryBySoutenanceId(id));
+            Map<Long, UserDTO> users = userCacheService.getUsers(Arrays.asList(d.getDoctorantId(), d.getDirecteurId()));
+            d.setDoctorantInfo(users.get(d.getDoctorantId()));
+            d.setDirecteurInfo(users.get(d.getDirecteurId()));
+        });
+        return detail;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<List<MembreJuryDTO>> getMembresJury(Long soutenanceId) {
+        List<MembreJuryDTO> membres = soutenanceRepository.findMembresJuryBySoutenanceId(soutenanceId);
+        // Liste vide : jury pas encore proposé ou soutenance inexistante
+        if (membres.isEmpty() && !soutenanceRepository.existsById(soutenanceId)) return Optional.empty();
+        return Optional.of(membres);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SoutenanceSummaryDTO> getAllSoutenances() {
+        return completerNoms(soutenanceRepository.findAllSummaries());
     }
 
     @Override
-    public Optional<Soutenance> getSoutenanceById(Long id) {
-        Optional<Soutenance> soutenance = soutenanceRepository.findById(id);
-        soutenance.ifPresent(this::enrichirAvecInfosUtilisateurs);
-        return soutenance;
+    @Transactional(readOnly = true)
+    public List<SoutenanceSummaryDTO> getSoutenancesByDoctorant(Long doctorantId) {
+        return completerNoms(soutenanceRepository.findSummariesByDoctorantId(doctorantId));
     }
 
     @Override
-    public List<Soutenance> getAllSoutenances() {
-        List<Soutenance> soutenances = soutenanceRepository.findAll();
-        soutenances.forEach(this::enrichirAvecInfosUtilisateurs);
-        return soutenances;
+    @Transactional(readOnly = true)
+    public List<SoutenanceSummaryDTO> getSoutenancesByDirecteur(Long directeurId) {
+        return completerNoms(soutenanceRepository.findSummariesByDirecteurId(directeurId));
     }
 
     @Override
-    public List<Soutenance> getSoutenancesByDoctorant(Long doctorantId) {
-        List<Soutenance> soutenances = soutenanceRepository.findByDoctorantId(doctorantId);
-        soutenances.forEach(this::enrichirAvecInfosUtilisateurs);
-        return soutenances;
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Map<String, Long> getCompteursParStatut() {
+        return statutCompteurs.getCompteurs();
     }
 
     @Override
-    public List<Soutenance> getSoutenancesByDirecteur(Long directeurId) {
-        List<Soutenance> soutenances = soutenanceRepository.findByDirecteurId(directeurId);
-        soutenances.forEach(this::enrichirAvecInfosUtilisateurs);
-        return soutenances;
+    @Transactional(readOnly = true)
+    public List<SoutenanceSummaryDTO> getSoutenancesByStatut(StatutSoutenance statut) {
+        return completerNoms(soutenanceRepository.findSummariesByStatut(statut));
     }
 
     @Override
-    public List<Soutenance> getSoutenancesByStatut(StatutSoutenance statut) {
-        List<Soutenance> soutenances = soutenanceRepository.findByStatut(statut);
-        soutenances.forEach(this::enrichirAvecInfosUtilisateurs);
-        return soutenances;
+    @Transactional(readOnly = true)
+    public SoutenancePageDTO getSoutenancesPage(String cursor, int size, StatutSoutenance statut, Long directeurId,
+                                                LocalDate dateDebut, LocalDate dateFin) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("_", 2);
+                afterCreatedAt = LocalDateTime.parse(parts[0]);
+                afterId = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Curseur invalide: " + cursor);
+            }
+        }
+
+        // On lit une ligne de plus pour savoir s'il reste une page, sans COUNT
+        List<SoutenanceSummaryDTO> rows = soutenanceRepository.findSummariesAfter(statut, directeurId,
+                dateDebut != null ? dateDebut.atStartOfDay() : null,
+                dateFin != null ? dateFin.plusDays(1).atStartOfDay() : null,
+                afterCreatedAt, afterId, PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<SoutenanceSummaryDTO> items = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            SoutenanceSummaryDTO last = items.get(items.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((last.getCreatedAt() + "_" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new SoutenancePageDTO(completerNoms(items), nextCursor, hasMore);
     }
 
     // ========================================================
@@ -191,6 +254,10 @@ public class SoutenanceServiceImpl implements SoutenanceService {
 
         return soutenanceRepository.findById(soutenanceId)
                 .map(soutenance -> {
+                    if (soutenance.getStatut() == StatutSoutenance.PREREQUIS_VALIDES) {
+                        // Idempotente : déjà appliquée (double envoi ou nouvel essai après conflit)
+                        return soutenance;
+                    }
                     if (soutenance.getStatut() != StatutSoutenance.SOUMIS) {
                         throw new RuntimeException("Statut invalide. Attendu: SOUMIS, Actuel: " + soutenance.getStatut());
                     }
@@ -234,19 +301,26 @@ public class SoutenanceServiceImpl implements SoutenanceService {
     @Override
     public List<JuryDisponible> getJurysDisponibles() {
         log.info("📋 Récupération de tous les jurys disponibles");
-        List<JuryDisponible> jurys = juryDisponibleRepository.findAll();
-        return jurys;
+        return juryRecommandationService.getJurysDisponibles();
     }
 
     @Override
     public List<JuryDisponible> getJurysDisponiblesByRole(RoleJury role) {
         log.info("📋 Récupération des jurys disponibles pour le rôle: {}", role);
-        return juryDisponibleRepository.findByRole(role);
+        return juryRecommandationService.getJurysDisponiblesByRole(role);
     }
 
     @Override
     public Optional<JuryDisponible> getJuryDisponibleById(Long id) {
-        return juryDisponibleRepository.findById(id);
+        return juryRecommandationService.getJuryDisponibleById(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<JuryRecommandationDTO> recommanderJury(Long soutenanceId, RoleJury role, String grade,
+                                                       String etablissement, int limite) {
+        log.info("🔎 Recommandation de jury pour soutenance: {} (rôle: {})", soutenanceId, role);
+        return juryRecommandationService.recommander(soutenanceId, role, grade, etablissement, limite);
     }
 
     // ========================================================
@@ -256,22 +330,28 @@ public class SoutenanceServiceImpl implements SoutenanceService {
 
     @Override
     public Soutenance ajouterMembreJury(Long soutenanceId, MembreJury membreJury) {
-        return soutenanceRepository.findById(soutenanceId)
+        return soutenanceRepository.findWithJuryById(soutenanceId)
                 .map(soutenance -> {
                     membreJury.setSoutenance(soutenance);
                     soutenance.getMembresJury().add(membreJury);
-                    return soutenanceRepository.save(soutenance);
+                    Soutenance saved = soutenanceRepository.save(soutenance);
+                    planificationIndex.indexer(saved);
+                    calendrierService.mettreAJour(saved);
+                    return saved;
                 })
                 .orElseThrow(() -> new RuntimeException("Soutenance non trouvée: " + soutenanceId));
     }
 
     @Override
     public Soutenance supprimerMembreJury(Long soutenanceId, Long membreId) {
-        return soutenanceRepository.findById(soutenanceId)
+        return soutenanceRepository.findWithJuryById(soutenanceId)
                 .map(soutenance -> {
                     soutenance.getMembresJury().removeIf(m -> m.getId().equals(membreId));
                     membreJuryRepository.deleteById(membreId);
-                    return soutenanceRepository.save(soutenance);
+                    Soutenance saved = soutenanceRepository.save(soutenance);
+                    planificationIndex.indexer(saved);
+                    calendrierService.mettreAJour(saved);
+                    return saved;
                 })
                 .orElseThrow(() -> new RuntimeException("Soutenance non trouvée: " + soutenanceId));
     }
@@ -280,9 +360,12 @@ public class SoutenanceServiceImpl implements SoutenanceService {
     public Soutenance proposerJury(Long soutenanceId) {
         log.info("📋 Proposition jury pour soutenance: {}", soutenanceId);
 
-        return soutenanceRepository.findById(soutenanceId)
+        return soutenanceRepository.findWithJuryById(soutenanceId)
                 .map(soutenance -> {
                     // Autorise JURY_PROPOSE depuis PREREQUIS_VALIDES (via admin) ou AUTORISEE (via workflow complet)
+                    if (soutenance.getStatut() == StatutSoutenance.JURY_PROPOSE) {
+                        return soutenance; // Idempotente : jury déjà proposé
+                    }
                     if (soutenance.getStatut() != StatutSoutenance.AUTORISEE) {
                         throw new RuntimeException("Statut invalide. Attendu: AUTORISEE, Actuel: " + soutenance.getStatut());
                     }
@@ -358,11 +441,19 @@ public class SoutenanceServiceImpl implements SoutenanceService {
     public Soutenance proposerDateSoutenance(Long soutenanceId, LocalDate date, LocalTime heure, String lieu) {
         log.info("📅 Proposition date soutenance: {} - Date: {}", soutenanceId, date);
 
-        return soutenanceRepository.findById(soutenanceId)
+        return soutenanceRepository.findWithJuryById(soutenanceId)
                 .map(soutenance -> {
                     if (soutenance.getStatut() != StatutSoutenance.AUTORISEE) {
                         throw new RuntimeException("Statut invalide. Attendu: AUTORISEE");
                     }
+                    // Proposition seulement : on refuse un créneau déjà pris, sans le réserver
+                    if (date != null && heure != null) {
+                        List<ConflitPlanificationDTO> conflits = planificationIndex.trouverConflits(
+                                soutenanceId, lieu, emailsJury(soutenance), LocalDateTime.of(date, heure));
+                        if (!conflits.isEmpty()) {
+                            throw new RuntimeException("Créneau indisponible: " + conflits.size() + " conflit(s) de salle ou de jury");
+                        }
+                    }
                     soutenance.setDateSoutenance(date);
                     soutenance.setHeureSoutenance(heure);
                     soutenance.setLieuSoutenance(lieu);
@@ -380,13 +471,16 @@ public class SoutenanceServiceImpl implements SoutenanceService {
     public Soutenance planifierSoutenance(Long soutenanceId, LocalDate date, LocalTime heure, String lieu) {
         log.info("📅 Planification soutenance: {} - Date: {}", soutenanceId, date);
 
-        return soutenanceRepository.findById(soutenanceId)
+        return soutenanceRepository.findWithJuryById(soutenanceId)
                 .map(soutenance -> {
                     // On accepte JURY_PROPOSE (si admin valide et planifie en meme temps) ou AUTORISEE
                     if (soutenance.getStatut() != StatutSoutenance.JURY_PROPOSE && soutenance.getStatut() != StatutSoutenance.AUTORISEE) {
                         throw new RuntimeException("Statut invalide. Attendu: JURY_PROPOSE ou AUTORISEE");
                     }
 
+                    // Vérifie salle + jury et réserve le créneau (annulé si la transaction échoue)
+                    planificationIndex.reserver(soutenance, lieu, LocalDateTime.of(date, heure));
+
                     String ancienStatut = soutenance.getStatut().name();
                     soutenance.setDateSoutenance(date);
                     soutenance.setHeureSoutenance(heure);
@@ -394,6 +488,9 @@ public class SoutenanceServiceImpl implements SoutenanceService {
                     soutenance.setStatut(StatutSoutenance.PLANIFIEE);
 
                     Soutenance updated = soutenanceRepository.save(soutenance);
+                    calendrierService.mettreAJour(updated);
+                    statutCompteurs.transition(StatutSoutenance.valueOf(ancienStatut), StatutSoutenance.PLANIFIEE);
+                    soutenanceStreamService.publier(updated, ancienStatut, "PLANIFIEE");
 
                     try {
                         SoutenanceStatusChangedEvent event = buildStatusChangedEvent(updated, ancienStatut, "PLANIFIEE",
@@ -401,6 +498,7 @@ public class SoutenanceServiceImpl implements SoutenanceService {
                         event.setDateSoutenance(LocalDateTime.of(date, heure));
                         event.setLieu(lieu);
                         eventPublisher.publishSoutenanceScheduled(event);
+                        eventPublisher.publishAllJuryInvitations(updated, updated.getMembresJury());
                     } catch (Exception e) {
                         log.warn("⚠️ Impossible de publier l'événement: {}", e.getMessage());
                     }
@@ -423,12 +521,38 @@ public class SoutenanceServiceImpl implements SoutenanceService {
                     soutenance.setHeureSoutenance(null);
 
                     Soutenance updated = soutenanceRepository.save(soutenance);
+                    planificationIndex.retirer(updated.getId());
+                    calendrierService.retirer(updated.getId());
                     publishStatusChangedEvent(updated, ancienStatut, "AUTORISEE", "Date refusée: " + commentaire);
                     return updated;
                 })
                 .orElseThrow(() -> new RuntimeException("Soutenance non trouvée: " + soutenanceId));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ConflitPlanificationDTO> verifierConflits(Long soutenanceId, LocalDate date, LocalTime heure, String lieu) {
+        Soutenance soutenance = soutenanceRepository.findWithJuryById(soutenanceId)
+                .orElseThrow(() -> new RuntimeException("Soutenance non trouvée: " + soutenanceId));
+        return planificationIndex.trouverConflits(soutenanceId, lieu, emailsJury(soutenance), LocalDateTime.of(date, heure));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<LocalDateTime> proposerCreneauxLibres(Long soutenanceId, LocalDate aPartirDe, String lieu, int nombre) {
+        Soutenance soutenance = soutenanceRepository.findWithJuryById(soutenanceId)
+                .orElseThrow(() -> new RuntimeException("Soutenance non trouvée: " + soutenanceId));
+        int n = Math.max(1, Math.min(nombre, 20));
+        LocalDateTime debut = aPartirDe.atStartOfDay().isBefore(LocalDateTime.now())
+                ? LocalDateTime.now().plusHours(1).withMinute(0).withSecond(0).withNano(0)
+                : aPartirDe.atStartOfDay();
+        return planificationIndex.proposerCreneaux(soutenanceId, lieu, emailsJury(soutenance), debut, n);
+    }
+
+    private List<String> emailsJury(Soutenance soutenance) {
+        return soutenance.getMembresJury().stream().map(MembreJury::getEmail).toList();
+    }
+
     // ========================================================
     // ÉTAPE 6: RÉSULTAT
     // ========================================================
@@ -444,6 +568,8 @@ public class SoutenanceServiceImpl implements SoutenanceService {
                     soutenance.setStatut(StatutSoutenance.TERMINEE);
 
                     Soutenance updated = soutenanceRepository.save(soutenance);
+                    planificationIndex.retirer(updated.getId());
+                    calendrierService.retirer(updated.getId());
                     publishStatusChangedEvent(updated, ancienStatut, "TERMINEE", "Soutenance terminée - Mention: " + mention);
                     return updated;
                 })
@@ -462,6 +588,8 @@ public class SoutenanceServiceImpl implements SoutenanceService {
                     soutenance.setStatut(StatutSoutenance.REJETEE);
                     soutenance.setCommentaireAdmin(motif);
                     Soutenance updated = soutenanceRepository.save(soutenance);
+                    planificationIndex.retirer(updated.getId());
+                    calendrierService.retirer(updated.getId());
                     publishStatusChangedEvent(updated, ancienStatut, "REJETEE", motif);
                     return updated;
                 })
@@ -494,6 +622,9 @@ public class SoutenanceServiceImpl implements SoutenanceService {
 
         return soutenanceRepository.findById(id)
                 .map(soutenance -> {
+                    if (soutenance.autorisationAccordee()) {
+                        return soutenance; // Idempotente : autorisation déjà accordée
+                    }
                     // On vérifie que le statut est bien PREREQUIS_VALIDES
                     if (soutenance.getStatut() != StatutSoutenance.PREREQUIS_VALIDES) {
                         throw new RuntimeException("Statut invalide. Attendu: PREREQUIS_VALIDES, Actuel: " + soutenance.getStatut());
@@ -517,6 +648,8 @@ public class SoutenanceServiceImpl implements SoutenanceService {
     // ========================================================
 
     private void publishStatusChangedEvent(Soutenance soutenance, String oldStatus, String newStatus, String commentaire) {
+        statutCompteurs.transition(StatutSoutenance.valueOf(oldStatus), StatutSoutenance.valueOf(newStatus));
+        soutenanceStreamService.publier(soutenance, oldStatus, newStatus);
         try {
             SoutenanceStatusChangedEvent event = buildStatusChangedEvent(soutenance, oldStatus, newStatus, commentaire);
             eventPublisher.publishSoutenanceStatusChanged(event);
@@ -527,42 +660,29 @@ public class SoutenanceServiceImpl implements SoutenanceService {
 
     private SoutenanceStatusChangedEvent buildStatusChangedEvent(Soutenance soutenance, String oldStatus,
                                                                  String newStatus, String commentaire) {
-        UserDTO doctorant = null;
-        try {
-            doctorant = userServiceClient.getUserById(soutenance.getDoctorantId());
-        } catch (Exception e) {
-            log.warn("Impossible de récupérer les infos du doctorant");
-        }
-
-        return SoutenanceStatusChangedEvent.builder()
-                .soutenanceId(soutenance.getId())
-                .doctorantId(soutenance.getDoctorantId())
-                .doctorantEmail(doctorant != null ? doctorant.getEmail() : null)
-                .doctorantNom(doctorant != null ? doctorant.getNom() : null)
-                .doctorantPrenom(doctorant != null ? doctorant.getPrenom() : null)
-                .sujetThese(soutenance.getTitreThese())
-                .oldStatus(oldStatus)
-                .newStatus(newStatus)
-                .dateSoutenance(soutenance.getDateSoutenance() != null && soutenance.getHeureSoutenance() != null
-                        ? LocalDateTime.of(soutenance.getDateSoutenance(), soutenance.getHeureSoutenance()) : null)
-                .lieu(soutenance.getLieuSoutenance())
-                .commentaire(commentaire)
-                .build();
-    }
-
-    private Soutenance enrichirAvecInfosUtilisateurs(Soutenance soutenance) {
-        try {
-            UserDTO doctorant = userServiceClient.getUserById(soutenance.getDoctorantId());
-            UserDTO directeur = userServiceClient.getUserById(soutenance.getDirecteurId());
-
-            soutenance.setDoctorantInfo(doctorant);
-            soutenance.setDirecteurInfo(directeur);
+        return eventPublisher.buildStatusChangedEvent(soutenance, oldStatus, newStatus, commentaire);
+    }
 
-        } catch (Exception e) {
-            log.warn("Impossible de récupérer les infos utilisateurs pour la soutenance {}: {}",
-                    soutenance.getId(), e.getMessage());
+    /**
+     * Noms complets des résumés : ids distincts résolus en un lot via le cache local,
+     * puis jointure en mémoire.
+     */
+    private List<SoutenanceSummaryDTO> completerNoms(List<SoutenanceSummaryDTO> items) {
+        if (items.isEmpty()) return items;
+
+        Set<Long> ids = new LinkedHashSet<>();
+        for (SoutenanceSummaryDTO item : items) {
+            ids.add(item.getDoctorantId());
+            ids.add(item.getDirecteurId());
         }
 
-        return soutenance;
+        Map<Long, UserDTO> users = userCacheService.getUsers(ids);
+        for (SoutenanceSummaryDTO item : items) {
+            UserDTO doctorant = users.get(item.getDoctorantId());
+            UserDTO directeur = users.get(item.getDirecteurId());
+            item.setDoctorantNomComplet(doctorant != null ? doctorant.getFullName().trim() : null);
+            item.setDirecteurNomComplet(directeur != null ? directeur.getFullName().trim() : null);
+        }
+        return items;
     }
-}
\ No newline at end of file
+}
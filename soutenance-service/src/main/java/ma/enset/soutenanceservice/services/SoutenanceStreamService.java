@@ -0,0 +1,155 @@
+package ma.enset.soutenanceservice.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.dto.StatutChangeDTO;
+import ma.enset.soutenanceservice.entities.Soutenance;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ma.enset.soutenanceservice.services.Transactions.apresCommit;
+
+/**
+ * Flux SSE des changements de statut des soutenances.
+ *
+ * Une connexion inactive ne coûte qu'un SseEmitter (requête servlet asynchrone, aucun thread
+ * bloqué). Les abonnés sont indexés par directeurId / doctorantId : un changement ne visite que
+ * les abonnés concernés. Les envois partent après commit sur des threads virtuels, un client lent
+ * ne ralentit donc ni la transaction ni les autres clients. Un commentaire de heartbeat détecte
+ * les connexions fermées.
+ */
+@Service
+@Slf4j
+public class SoutenanceStreamService {
+
+    private final long timeoutMs;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Set<Abonne> sansFiltre = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Abonne>> parDirecteur = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Abonne>> parDoctorant = new ConcurrentHashMap<>();
+
+    public SoutenanceStreamService(@Value("${soutenance-stream.timeout:30m}") Duration timeout) {
+        this.timeoutMs = timeout.toMillis();
+    }
+
+    private record Abonne(SseEmitter emitter, Long directeurId, Long doctorantId) {
+    }
+
+    public SseEmitter abonner(Long directeurId, Long doctorantId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Abonne abonne = new Abonne(emitter, directeurId, doctorantId);
+        emitter.onCompletion(() -> retirer(abonne));
+        emitter.onTimeout(() -> retirer(abonne));
+        emitter.onError(e -> retirer(abonne));
+
+        // directeurId prioritaire si les deux filtres sont fournis (le doctorant est vérifié à l'envoi)
+        if (directeurId != null) {
+            parDirecteur.computeIfAbsent(directeurId, k -> ConcurrentHashMap.newKeySet()).add(abonne);
+        } else if (doctorantId != null) {
+            parDoctorant.computeIfAbsent(doctorantId, k -> ConcurrentHashMap.newKeySet()).add(abonne);
+        } else {
+            sansFiltre.add(abonne);
+        }
+
+        log.debug("📡 Nouvel abonné SSE (directeur: {}, doctorant: {})", directeurId, doctorantId);
+        try {
+            // Premier message immédiat : le client sait que le flux est ouvert
+            emitter.send(SseEmitter.event().comment("connecte"));
+        } catch (Exception e) {
+            retirer(abonne);
+        }
+        return emitter;
+    }
+
+    /**
+     * Pousse un changement de statut aux abonnés concernés, une fois la transaction validée
+     */
+    public void publier(Soutenance soutenance, String ancienStatut, String nouveauStatut) {
+        StatutChangeDTO delta = StatutChangeDTO.builder()
+                .soutenanceId(soutenance.getId())
+                .doctorantId(soutenance.getDoctorantId())
+                .directeurId(soutenance.getDirecteurId())
+                .ancienStatut(ancienStatut)
+                .nouveauStatut(nouveauStatut)
+                .date(LocalDateTime.now())
+                .build();
+        apresCommit(() -> diffuser(delta));
+    }
+
+    public int getNombreAbonnes() {
+        return sansFiltre.size()
+                + parDirecteur.values().stream().mapToInt(Set::size).sum()
+                + parDoctorant.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void diffuser(StatutChangeDTO delta) {
+        Set<Abonne> cibles = new HashSet<>(sansFiltre);
+        if (delta.getDirecteurId() != null) cibles.addAll(parDirecteur.getOrDefault(delta.getDirecteurId(), Set.of()));
+        if (delta.getDoctorantId() != null) cibles.addAll(parDoctorant.getOrDefault(delta.getDoctorantId(), Set.of()));
+        // Abonné avec les deux filtres : indexé par directeur, le doctorant doit aussi correspondre
+        cibles.removeIf(a -> a.doctorantId() != null && !a.doctorantId().equals(delta.getDoctorantId()));
+        if (cibles.isEmpty()) return;
+
+        // Message construit une seule fois, partagé par tous les envois
+        Set<ResponseBodyEmitter.DataWithMediaType> event = SseEmitter.event()
+                .id(String.valueOf(sequence.incrementAndGet()))
+                .name("statut")
+                .data(delta, MediaType.APPLICATION_JSON)
+                .build();
+        for (Abonne abonne : cibles) {
+            executor.execute(() -> envoyer(abonne, event));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${soutenance-stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        Set<ResponseBodyEmitter.DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        sansFiltre.forEach(a -> executor.execute(() -> envoyer(a, ping)));
+        parDirecteur.values().forEach(set -> set.forEach(a -> executor.execute(() -> envoyer(a, ping))));
+        parDoctorant.values().forEach(set -> set.forEach(a -> executor.execute(() -> envoyer(a, ping))));
+    }
+
+    private void envoyer(Abonne abonne, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        try {
+            abonne.emitter().send(event);
+        } catch (Exception e) {
+            // Client déconnecté : on libère la connexion
+            retirer(abonne);
+            abonne.emitter().completeWithError(e);
+        }
+    }
+
+    private void retirer(Abonne abonne) {
+        sansFiltre.remove(abonne);
+        if (abonne.directeurId() != null) retirerDe(parDirecteur, abonne.directeurId(), abonne);
+        if (abonne.doctorantId() != null) retirerDe(parDoctorant, abonne.doctorantId(), abonne);
+    }
+
+    private static void retirerDe(Map<Long, Set<Abonne>> index, Long cle, Abonne abonne) {
+        index.computeIfPresent(cle, (k, set) -> {
+            set.remove(abonne);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    @PreDestroy
+    public void fermer() {
+        executor.shutdownNow();
+    }
+}
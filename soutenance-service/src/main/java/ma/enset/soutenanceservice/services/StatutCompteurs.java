@@ -0,0 +1,84 @@
+package ma.enset.soutenanceservice.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.enums.StatutSoutenance;
+import ma.enset.soutenanceservice.repositories.SoutenanceRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ma.enset.soutenanceservice.services.Transactions.apresCommit;
+
+/**
+ * Nombre de soutenances par statut, tenu en mémoire.
+ *
+ * Chaque transition du workflow ajuste les compteurs après commit ; une requête
+ * GROUP BY statut les recale au démarrage puis périodiquement (écritures d'autres
+ * instances, modifications directes en base). Lecture O(1), sans base ni user-service.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StatutCompteurs {
+
+    private final SoutenanceRepository soutenanceRepository;
+
+    private final Map<StatutSoutenance, AtomicLong> compteurs = initialiser();
+
+    private static Map<StatutSoutenance, AtomicLong> initialiser() {
+        Map<StatutSoutenance, AtomicLong> map = new EnumMap<>(StatutSoutenance.class);
+        for (StatutSoutenance statut : StatutSoutenance.values()) map.put(statut, new AtomicLong());
+        return map;
+    }
+
+    public Map<String, Long> getCompteurs() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        compteurs.forEach((statut, valeur) -> snapshot.put(statut.name(), valeur.get()));
+        return snapshot;
+    }
+
+    public void creation(StatutSoutenance statut) {
+        apresCommit(() -> compteurs.get(statut).incrementAndGet());
+    }
+
+    public void suppression(StatutSoutenance statut) {
+        apresCommit(() -> compteurs.get(statut).decrementAndGet());
+    }
+
+    public void transition(StatutSoutenance ancien, StatutSoutenance nouveau) {
+        if (ancien == nouveau) return;
+        apresCommit(() -> {
+            compteurs.get(ancien).decrementAndGet();
+            compteurs.get(nouveau).incrementAndGet();
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${statut-compteurs.reconciliation-ms:300000}",
+            fixedDelayString = "${statut-compteurs.reconciliation-ms:300000}")
+    public void reconcilier() {
+        Map<StatutSoutenance, Long> reels = new EnumMap<>(StatutSoutenance.class);
+        try {
+            for (Object[] ligne : soutenanceRepository.countGroupByStatut()) {
+                reels.put((StatutSoutenance) ligne[0], (Long) ligne[1]);
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Réconciliation des compteurs de statut impossible: {}", e.getMessage());
+            return;
+        }
+
+        int ecarts = 0;
+        for (StatutSoutenance statut : StatutSoutenance.values()) {
+            long reel = reels.getOrDefault(statut, 0L);
+            if (compteurs.get(statut).getAndSet(reel) != reel) ecarts++;
+        }
+        if (ecarts > 0) log.info("🔢 Compteurs de statut recalés ({} statuts corrigés)", ecarts);
+    }
+}
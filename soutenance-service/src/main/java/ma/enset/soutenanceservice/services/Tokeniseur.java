@@ -0,0 +1,62 @@
+package ma.enset.soutenanceservice.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Découpage de texte partagé par les index en mémoire (recommandation de jury, recherche de thèses) :
+ * sans accents, en minuscules, ≥ 3 caractères, mots vides retirés, pluriel simple ramené au singulier.
+ */
+final class Tokeniseur {
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}");
+    private static final Pattern SEPARATEURS = Pattern.compile("[^a-z0-9]+");
+    private static final Set<String> MOTS_VIDES = Set.of(
+            "les", "des", "une", "pour", "dans", "sur", "par", "aux", "avec", "sans", "entre", "son", "ses", "leur",
+            "the", "and", "for", "with", "from", "into");
+
+    private Tokeniseur() {
+    }
+
+    static String normaliser(String texte) {
+        return ACCENTS.matcher(Normalizer.normalize(texte, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase()
+                .trim();
+    }
+
+    /**
+     * Termes dans l'ordre du texte, répétitions comprises (fréquences)
+     */
+    static List<String> mots(String texte) {
+        List<String> mots = new ArrayList<>();
+        if (texte == null || texte.isBlank()) return mots;
+        for (String mot : SEPARATEURS.split(normaliser(texte))) {
+            if (mot.length() < 3 || MOTS_VIDES.contains(mot)) continue;
+            mots.add(racine(mot));
+        }
+        return mots;
+    }
+
+    static Set<String> termes(String texte) {
+        return new LinkedHashSet<>(mots(texte));
+    }
+
+    /**
+     * Forme indexée d'un préfixe saisi : même normalisation, sans filtre de longueur ni racine
+     */
+    static String prefixe(String saisie) {
+        return SEPARATEURS.matcher(normaliser(saisie)).replaceAll("");
+    }
+
+    private static String racine(String mot) {
+        if (mot.length() > 4 && (mot.endsWith("s") || mot.endsWith("x"))) {
+            return mot.substring(0, mot.length() - 1);
+        }
+        return mot;
+    }
+}
@@ -0,0 +1,189 @@
+package ma.enset.soutenanceservice.services;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.dto.TransitionGroupeeRequest;
+import ma.enset.soutenanceservice.dto.TransitionResultatDTO;
+import ma.enset.soutenanceservice.entities.Soutenance;
+import ma.enset.soutenanceservice.enums.ActionGroupee;
+import ma.enset.soutenanceservice.enums.StatutSoutenance;
+import ma.enset.soutenanceservice.events.SoutenanceStatusChangedEvent;
+import ma.enset.soutenanceservice.repositories.SoutenanceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transitions de workflow appliquées à un lot de soutenances (fin de semestre).
+ *
+ * Les ids sont traités par paquets, une transaction par paquet : un SELECT ... IN,
+ * les UPDATE envoyés en batch JDBC (hibernate.jdbc.batch_size), et les événements
+ * insérés en un seul batch dans l'outbox. Une soutenance dans un mauvais statut
+ * n'empêche pas les autres : chaque id a son propre résultat. Un paquet en conflit
+ * de version avec une autre écriture est rejoué ({@link ConcurrenceOptimiste}).
+ * Les règles de statut sont celles des transitions unitaires de {@link SoutenanceServiceImpl}.
+ */
+@Service
+@Slf4j
+public class TransitionGroupeeService {
+
+    private final SoutenanceRepository soutenanceRepository;
+    private final SoutenanceEventPublisher eventPublisher;
+    private final PlanificationIndex planificationIndex;
+    private final CalendrierService calendrierService;
+    private final StatutCompteurs statutCompteurs;
+    private final SoutenanceStreamService soutenanceStreamService;
+    private final ConcurrenceOptimiste concurrenceOptimiste;
+    private final TransactionTemplate transactionTemplate;
+    private final int taillePaquet;
+    private final int maxIds;
+
+    public TransitionGroupeeService(SoutenanceRepository soutenanceRepository,
+                                    SoutenanceEventPublisher eventPublisher,
+                                    PlanificationIndex planificationIndex,
+                                    CalendrierService calendrierService,
+                                    StatutCompteurs statutCompteurs,
+                                    SoutenanceStreamService soutenanceStreamService,
+                                    ConcurrenceOptimiste concurrenceOptimiste,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${transition-groupee.taille-paquet:100}") int taillePaquet,
+                                    @Value("${transition-groupee.max-ids:1000}") int maxIds) {
+        this.soutenanceRepository = soutenanceRepository;
+        this.eventPublisher = eventPublisher;
+        this.planificationIndex = planificationIndex;
+        this.calendrierService = calendrierService;
+        this.statutCompteurs = statutCompteurs;
+        this.soutenanceStreamService = soutenanceStreamService;
+        this.concurrenceOptimiste = concurrenceOptimiste;
+        this.transactionTemplate = transactionTemplate;
+        this.taillePaquet = taillePaquet;
+        this.maxIds = maxIds;
+    }
+
+    public List<TransitionResultatDTO> appliquer(TransitionGroupeeRequest request) {
+        if (request.getAction() == null) {
+            throw new IllegalArgumentException("Action obligatoire");
+        }
+
+        Map<Long, TransitionGroupeeRequest.Resultat> resultats = new HashMap<>();
+        List<Long> ids;
+        if (request.getAction() == ActionGroupee.ENREGISTRER_RESULTAT) {
+            request.getResultats().stream().filter(r -> r.getId() != null).forEach(r -> resultats.put(r.getId(), r));
+            ids = request.getResultats().stream().map(TransitionGroupeeRequest.Resultat::getId).filter(id -> id != null).distinct().toList();
+        } else {
+            ids = request.getIds().stream().filter(id -> id != null).distinct().toList();
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("Aucune soutenance à traiter");
+        }
+        if (ids.size() > maxIds) {
+            throw new IllegalArgumentException("Trop de soutenances (max " + maxIds + ")");
+        }
+
+        log.info("📦 Transition groupée {} sur {} soutenances", request.getAction(), ids.size());
+
+        List<TransitionResultatDTO> sortie = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i += taillePaquet) {
+            List<Long> paquet = ids.subList(i, Math.min(i + taillePaquet, ids.size()));
+            try {
+                // Conflit de version : le paquet est rejoué sur l'état relu (les statuts sont revérifiés)
+                sortie.addAll(concurrenceOptimiste.reessayer("transition groupée",
+                        () -> transactionTemplate.execute(status -> traiterPaquet(request, paquet, resultats))));
+            } catch (Exception e) {
+                // Paquet annulé : aucune de ses transitions n'a été appliquée
+                log.error("❌ Échec du paquet de transitions {}: {}", paquet, e.getMessage());
+                paquet.forEach(id -> sortie.add(TransitionResultatDTO.echec(id, null, "Échec de la transaction: " + e.getMessage())));
+            }
+        }
+
+        long succes = sortie.stream().filter(TransitionResultatDTO::isSucces).count();
+        log.info("✅ Transition groupée {}: {} réussies, {} en échec", request.getAction(), succes, sortie.size() - succes);
+        return sortie;
+    }
+
+    private List<TransitionResultatDTO> traiterPaquet(TransitionGroupeeRequest request, List<Long> paquet,
+                                                      Map<Long, TransitionGroupeeRequest.Resultat> resultats) {
+        Map<Long, Soutenance> soutenances = soutenanceRepository.findAllById(paquet).stream()
+                .collect(Collectors.toMap(Soutenance::getId, Function.identity()));
+
+        Map<Long, TransitionResultatDTO> sortie = new LinkedHashMap<>();
+        List<Soutenance> modifiees = new ArrayList<>();
+        List<SoutenanceStatusChangedEvent> events = new ArrayList<>();
+        LocalDateTime maintenant = LocalDateTime.now();
+
+        for (Long id : paquet) {
+            Soutenance soutenance = soutenances.get(id);
+            if (soutenance == null) {
+                sortie.put(id, TransitionResultatDTO.echec(id, null, "Soutenance non trouvée: " + id));
+                continue;
+            }
+            StatutSoutenance ancien = soutenance.getStatut();
+            String commentaireEvent;
+
+            switch (request.getAction()) {
+                case AUTORISER -> {
+                    if (soutenance.autorisationAccordee()) {
+                        // Idempotente, comme autoriserSoutenance : ni écriture ni événement
+                        sortie.put(id, TransitionResultatDTO.succes(id, ancien.name(), ancien.name()));
+                        continue;
+                    }
+                    if (ancien != StatutSoutenance.PREREQUIS_VALIDES) {
+                        sortie.put(id, statutInvalide(id, ancien, StatutSoutenance.PREREQUIS_VALIDES));
+                        continue;
+                    }
+                    soutenance.setStatut(StatutSoutenance.AUTORISEE);
+                    soutenance.setDateAutorisation(maintenant);
+                    if (request.getCommentaire() != null) soutenance.setCommentaireAdmin(request.getCommentaire());
+                    commentaireEvent = "Autorisation administrative accordée";
+                }
+                case VALIDER_JURY -> {
+                    if (ancien != StatutSoutenance.JURY_PROPOSE) {
+                        sortie.put(id, statutInvalide(id, ancien, StatutSoutenance.JURY_PROPOSE));
+                        continue;
+                    }
+                    soutenance.setStatut(StatutSoutenance.AUTORISEE);
+                    if (request.getCommentaire() != null) soutenance.setCommentaireAdmin(request.getCommentaire());
+                    commentaireEvent = "Jury validé par l'administration";
+                }
+                case ENREGISTRER_RESULTAT -> {
+                    // Pas de contrôle de statut, comme enregistrerResultat
+                    TransitionGroupeeRequest.Resultat resultat = resultats.get(id);
+                    soutenance.setNoteFinale(resultat.getNote());
+                    soutenance.setMention(resultat.getMention());
+                    soutenance.setFelicitationsJury(resultat.getFelicitations());
+                    soutenance.setStatut(StatutSoutenance.TERMINEE);
+                    planificationIndex.retirer(id);
+                    calendrierService.retirer(id);
+                    commentaireEvent = "Soutenance terminée - Mention: " + resultat.getMention();
+                }
+                default -> throw new IllegalArgumentException("Action non supportée: " + request.getAction());
+            }
+
+            modifiees.add(soutenance);
+            statutCompteurs.transition(ancien, soutenance.getStatut());
+            soutenanceStreamService.publier(soutenance, ancien.name(), soutenance.getStatut().name());
+            events.add(eventPublisher.buildStatusChangedEvent(soutenance, ancien.name(),
+                    soutenance.getStatut().name(), commentaireEvent));
+            sortie.put(id, TransitionResultatDTO.succes(id, ancien.name(), soutenance.getStatut().name()));
+        }
+
+        // UPDATE groupés (batch JDBC) puis événements en un seul INSERT batch dans l'outbox
+        soutenanceRepository.saveAll(modifiees);
+        soutenanceRepository.flush();
+        eventPublisher.publishSoutenanceStatusChangedBatch(events);
+
+        return new ArrayList<>(sortie.values());
+    }
+
+    private TransitionResultatDTO statutInvalide(Long id, StatutSoutenance actuel, StatutSoutenance attendu) {
+        return TransitionResultatDTO.echec(id, actuel.name(), "Statut invalide. Attendu: " + attendu + ", Actuel: " + actuel);
+    }
+}
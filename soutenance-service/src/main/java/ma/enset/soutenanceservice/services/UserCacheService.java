@@ -0,0 +1,124 @@
+package ma.enset.soutenanceservice.services;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.soutenanceservice.clients.ResilientUserClient;
+import ma.enset.soutenanceservice.clients.UserServiceClientFallback;
+import ma.enset.soutenanceservice.dto.UserDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Cache local (borné, avec TTL) des UserDTO du user-service, indexé par id.
+ *
+ * - Les entrées sont rafraîchies en arrière-plan après {@code refresh-after-write} ;
+ *   si le user-service est indisponible pendant le rafraîchissement, l'ancienne valeur reste servie.
+ * - Les réponses du fallback Feign ("INCONNU") ne sont jamais mises en cache.
+ * - Les entrées sont invalidées à la réception de l'événement Kafka user-updated.
+ * - Métriques hits/misses/évictions exposées via Micrometer (cache = "userCache").
+ * - Les chargements passent par {@link ResilientUserClient} (bulkhead, time limiter, couverture).
+ */
+@Service
+@Slf4j
+public class UserCacheService {
+
+    // Nombre max d'ids envoyés par appel groupé au user-service
+    private static final int USER_BATCH_SIZE = 500;
+
+    private final ResilientUserClient userServiceClient;
+    private final LoadingCache<Long, UserDTO> cache;
+
+    public UserCacheService(ResilientUserClient userServiceClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${user-cache.max-size:5000}") long maxSize,
+                            @Value("${user-cache.expire-after-write:30m}") Duration expireAfterWrite,
+                            @Value("${user-cache.refresh-after-write:5m}") Duration refreshAfterWrite) {
+        this.userServiceClient = userServiceClient;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .refreshAfterWrite(refreshAfterWrite)
+                .recordStats()
+                .build(new UserLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userCache");
+    }
+
+    /**
+     * Récupérer un utilisateur (null si introuvable ou user-service indisponible)
+     */
+    public UserDTO getUser(Long id) {
+        if (id == null) return null;
+        try {
+            return cache.get(id);
+        } catch (Exception e) {
+            log.warn("Impossible de récupérer l'utilisateur {}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Récupérer plusieurs utilisateurs : seuls les ids absents du cache partent au user-service,
+     * en appels groupés. Les ids non résolus sont absents de la map retournée.
+     */
+    public Map<Long, UserDTO> getUsers(Collection<Long> ids) {
+        List<Long> keys = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (keys.isEmpty()) return new HashMap<>();
+        try {
+            return cache.getAll(keys);
+        } catch (Exception e) {
+            log.warn("Impossible de récupérer {} utilisateurs: {}", keys.size(), e.getMessage());
+            return cache.getAllPresent(keys);
+        }
+    }
+
+    public void invalidate(Long id) {
+        if (id != null) cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static boolean isFallback(UserDTO user) {
+        return user == null || UserServiceClientFallback.UNAVAILABLE_EMAIL.equals(user.getEmail());
+    }
+
+    private class UserLoader implements CacheLoader<Long, UserDTO> {
+
+        @Override
+        public UserDTO load(Long id) {
+            UserDTO user = userServiceClient.getUserById(id);
+            if (isFallback(user)) {
+                // Exception => rien n'est mis en cache, et un rafraîchissement garde l'ancienne valeur
+                throw new IllegalStateException("User Service indisponible pour l'utilisateur " + id);
+            }
+            return user;
+        }
+
+        @Override
+        public Map<Long, UserDTO> loadAll(Set<? extends Long> ids) {
+            Map<Long, UserDTO> users = new HashMap<>();
+            List<Long> idList = new ArrayList<>(ids);
+            for (int i = 0; i < idList.size(); i += USER_BATCH_SIZE) {
+                List<Long> lot = new ArrayList<>(idList.subList(i, Math.min(i + USER_BATCH_SIZE, idList.size())));
+                for (UserDTO user : userServiceClient.getUsersByIds(lot)) {
+                    if (!isFallback(user)) users.put(user.getId(), user);
+                }
+            }
+            return users;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package ma.enset.soutenanceservice.clients;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.enset.soutenanceservice.dto.UserDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test de charge : 20 instances du user-service derrière un round-robin, dont une lente.
+ * Sans couverture, le p99 est celui de l'instance lente ; avec couverture, il doit chuter.
+ */
+class ResilientUserClientLoadTest {
+
+    private static final int INSTANCES = 20;
+    private static final long LENTE_MS = 300;
+    private static final long RAPIDE_MS = 2;
+    private static final int APPELS = 1000;
+    private static final int CONCURRENCE = 8;
+
+    @Test
+    void lesRequetesCouvertesReduisentLeP99() throws Exception {
+        long p99SansCouverture = p99(false, new SimpleMeterRegistry());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        long p99AvecCouverture = p99(true, registry);
+
+        assertThat(p99SansCouverture).isGreaterThanOrEqualTo(LENTE_MS);
+        assertThat(p99AvecCouverture).isLessThan(p99SansCouverture / 3);
+        assertThat(registry.get("user.service.client.hedge").tag("result", "won").counter().count()).isPositive();
+    }
+
+    @Test
+    void lesAppelsAbandonnesGardentLeurPlaceDansLeBulkhead() {
+        UserServiceBloque bloque = new UserServiceBloque();
+        ResilientUserClient client = new ResilientUserClient(bloque, new UserServiceClientFallback(),
+                new SimpleMeterRegistry(), 2, Duration.ofMillis(10), Duration.ofMillis(50), true, Duration.ofMillis(20));
+        try {
+            // Chaque appel est abandonné (timeout) ; sa place n'est rendue qu'une fois la tâche terminée
+            for (long i = 0; i < 20; i++) client.getUserById(i);
+            assertThat(bloque.maxEnVol.get()).isLessThanOrEqualTo(2);
+        } finally {
+            client.fermer();
+        }
+    }
+
+    private long p99(boolean couverture, SimpleMeterRegistry registry) throws Exception {
+        ResilientUserClient client = new ResilientUserClient(new UserServiceLent(), new UserServiceClientFallback(),
+                registry, 20, Duration.ofMillis(50), Duration.ofSeconds(2), couverture, Duration.ofMillis(30));
+        ExecutorService pool = Executors.newFixedThreadPool(CONCURRENCE);
+        try {
+            List<Future<Long>> durees = new ArrayList<>();
+            for (int i = 0; i < APPELS; i++) {
+                long id = i;
+                durees.add(pool.submit(() -> {
+                    long debut = System.nanoTime();
+                    UserDTO user = client.getUserById(id);
+                    assertThat(user.getId()).isEqualTo(id);
+                    return (System.nanoTime() - debut) / 1_000_000;
+                }));
+            }
+            List<Long> valeurs = new ArrayList<>();
+            for (Future<Long> duree : durees) valeurs.add(duree.get());
+            Collections.sort(valeurs);
+            return valeurs.get((int) Math.ceil(0.99 * valeurs.size()) - 1);
+        } finally {
+            pool.shutdownNow();
+            client.fermer();
+        }
+    }
+
+    /**
+     * Instance qui répond toujours en LENTE_MS ; compte les appels réellement en cours
+     */
+    private static class UserServiceBloque implements UserServiceClient {
+
+        private final AtomicInteger enVol = new AtomicInteger();
+        private final AtomicInteger maxEnVol = new AtomicInteger();
+
+        @Override
+        public UserDTO getUserById(Long id) {
+            maxEnVol.accumulateAndGet(enVol.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(LENTE_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                enVol.decrementAndGet();
+            }
+            UserDTO user = new UserDTO();
+            user.setId(id);
+            return user;
+        }
+
+        @Override
+        public UserDTO getUserByUsername(String username) {
+            return getUserById(0L);
+        }
+
+        @Override
+        public List<UserDTO> getUsersByIds(Collection<Long> ids) {
+            return ids.stream().map(this::getUserById).toList();
+        }
+    }
+
+    /**
+     * Simule le round-robin du load balancer : un appel sur INSTANCES tombe sur l'instance lente
+     */
+    private static class UserServiceLent implements UserServiceClient {
+
+        private final AtomicLong compteur = new AtomicLong();
+
+        @Override
+        public UserDTO getUserById(Long id) {
+            pause();
+            UserDTO user = new UserDTO();
+            user.setId(id);
+            user.setEmail("user" + id + "@univ.ma");
+            return user;
+        }
+
+        @Override
+        public UserDTO getUserByUsername(String username) {
+            pause();
+            UserDTO user = new UserDTO();
+            user.setUsername(username);
+            return user;
+        }
+
+        @Override
+        public List<UserDTO> getUsersByIds(Collection<Long> ids) {
+            return ids.stream().map(this::getUserById).toList();
+        }
+
+        private void pause() {
+            long instance = compteur.getAndIncrement() % INSTANCES;
+            try {
+                Thread.sleep(instance == 0 ? LENTE_MS : RAPIDE_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
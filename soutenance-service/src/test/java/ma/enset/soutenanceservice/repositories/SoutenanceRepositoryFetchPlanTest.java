@@ -0,0 +1,102 @@
+package ma.enset.soutenanceservice.repositories;
+
+import jakarta.persistence.EntityManagerFactory;
+import ma.enset.soutenanceservice.dto.MembreJuryDTO;
+import ma.enset.soutenanceservice.dto.SoutenanceDetailDTO;
+import ma.enset.soutenanceservice.dto.SoutenanceSummaryDTO;
+import ma.enset.soutenanceservice.entities.MembreJury;
+import ma.enset.soutenanceservice.entities.Soutenance;
+import ma.enset.soutenanceservice.enums.RoleJury;
+import ma.enset.soutenanceservice.enums.StatutSoutenance;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Vérifie le nombre de requêtes SQL des plans de chargement : une régression N+1
+ * sur membresJury fait échouer le build.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.bootstrap.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class SoutenanceRepositoryFetchPlanTest {
+
+    private static final int NB_SOUTENANCES = 5;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private SoutenanceRepository soutenanceRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < NB_SOUTENANCES; i++) {
+            Soutenance soutenance = new Soutenance();
+            soutenance.setDoctorantId(100L + i);
+            soutenance.setDirecteurId(7L);
+            soutenance.setTitreThese("These " + i);
+            soutenance.setStatut(StatutSoutenance.PLANIFIEE);
+            for (RoleJury role : List.of(RoleJury.PRESIDENT, RoleJury.RAPPORTEUR, RoleJury.RAPPORTEUR)) {
+                MembreJury membre = new MembreJury();
+                membre.setSoutenance(soutenance);
+                membre.setRole(role);
+                membre.setNom("Nom");
+                membre.setPrenom("Prenom");
+                membre.setEmail("jury" + i + role + "@univ.ma");
+                soutenance.getMembresJury().add(membre);
+            }
+            em.persist(soutenance);
+        }
+        em.flush();
+        em.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findWithJuryByStatut_chargeLeJuryEnUneSeuleRequete() {
+        List<Soutenance> soutenances = soutenanceRepository.findWithJuryByStatut(StatutSoutenance.PLANIFIEE);
+        soutenances.forEach(Soutenance::juryEstComplet);
+
+        assertThat(soutenances).hasSize(NB_SOUTENANCES);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void vuesProjetees_nechargentAucuneEntite() {
+        List<SoutenanceSummaryDTO> resumes = soutenanceRepository.findSummariesByDirecteurId(7L);
+        SoutenanceDetailDTO detail = soutenanceRepository.findDetailById(resumes.get(0).getId()).orElseThrow();
+        List<MembreJuryDTO> jury = soutenanceRepository.findMembresJuryBySoutenanceId(detail.getId());
+
+        assertThat(resumes).hasSize(NB_SOUTENANCES);
+        assertThat(jury).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findByStatut_sansPlanDeChargement_faitUneRequeteParSoutenance() {
+        // Témoin : garantit que le compteur détecte bien le N+1
+        List<Soutenance> soutenances = soutenanceRepository.findByStatut(StatutSoutenance.PLANIFIEE);
+        soutenances.forEach(s -> s.getMembresJury().size());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + NB_SOUTENANCES);
+    }
+}
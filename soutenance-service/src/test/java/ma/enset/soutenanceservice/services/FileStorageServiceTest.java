@@ -0,0 +1,136 @@
+package ma.enset.soutenanceservice.services;
+
+import ma.enset.soutenanceservice.entities.FichierStocke;
+import ma.enset.soutenanceservice.repositories.FichierStockeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Déduplication et libération des fichiers stockés par contenu. Chaque appel du service
+ * valide sa propre transaction (suppression disque après commit).
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.bootstrap.enabled=false",
+        "spring.cloud.config.enabled=false",
+        // Mode MySQL : l'upsert du compteur utilise ON DUPLICATE KEY UPDATE
+        "spring.datasource.url=jdbc:h2:mem:fichiers;MODE=MySQL;DB_CLOSE_DELAY=-1"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(FileStorageService.class)
+class FileStorageServiceTest {
+
+    @TempDir
+    static Path racine;
+
+    @DynamicPropertySource
+    static void stockage(DynamicPropertyRegistry registry) {
+        registry.add("stockage.racine", racine::toString);
+    }
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FichierStockeRepository fichierStockeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fichierStockeRepository.deleteAll();
+        FileSystemUtils.deleteRecursively(racine);
+    }
+
+    @Test
+    void memeContenuEnvoyeDeuxFois_unSeulFichierDeuxReferences() {
+        String premier = enregistrer("manuscrit.pdf");
+        String second = enregistrer("copie.PDF");
+
+        assertThat(second).isEqualTo(premier);
+        assertThat(fichierStockeRepository.count()).isEqualTo(1);
+        assertThat(references(premier)).isEqualTo(2);
+        assertThat(fileStorageService.load(premier)).exists();
+    }
+
+    @Test
+    void release_supprimeLeFichierAvecLaDerniereReference() {
+        String filename = enregistrer("manuscrit.pdf");
+        enregistrer("manuscrit.pdf");
+
+        fileStorageService.release(filename);
+        assertThat(references(filename)).isEqualTo(1);
+        assertThat(fileStorageService.load(filename)).exists();
+
+        fileStorageService.release(filename);
+        assertThat(fichierStockeRepository.count()).isZero();
+        assertThat(fileStorageService.load(filename)).doesNotExist();
+    }
+
+    @Test
+    void nouvelEnvoiApresLiberation_recreeLaReference() {
+        String filename = enregistrer("manuscrit.pdf");
+        fileStorageService.release(filename);
+
+        assertThat(enregistrer("manuscrit.pdf")).isEqualTo(filename);
+        assertThat(references(filename)).isEqualTo(1);
+        assertThat(fileStorageService.load(filename)).exists();
+    }
+
+    @Test
+    void transactionAnnulee_leFichierEcritEstRetire() {
+        String filename = new TransactionTemplate(transactionManager).execute(status -> {
+            String nom = enregistrer("manuscrit.pdf");
+            status.setRollbackOnly();
+            return nom;
+        });
+
+        assertThat(fichierStockeRepository.count()).isZero();
+        assertThat(fileStorageService.load(filename)).doesNotExist();
+    }
+
+    @Test
+    void contenuRenvoyeAvantLaSuppression_leFichierEstConserve() {
+        String filename = enregistrer("manuscrit.pdf");
+
+        // Dernière référence libérée puis même contenu renvoyé avant que la suppression ne passe
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            fileStorageService.release(filename);
+            enregistrer("manuscrit.pdf");
+        });
+
+        assertThat(references(filename)).isEqualTo(1);
+        assertThat(fileStorageService.load(filename)).exists();
+    }
+
+    private String enregistrer(String originalFilename) {
+        MockMultipartFile file = new MockMultipartFile("file", originalFilename, "application/pdf",
+                "contenu du manuscrit".getBytes(StandardCharsets.UTF_8));
+        return fileStorageService.saveFile(file);
+    }
+
+    private int references(String filename) {
+        return fichierStockeRepository.findBySha256(filename.substring(0, 64))
+                .map(FichierStocke::getNbReferences)
+                .orElse(0);
+    }
+}
@@ -0,0 +1,9 @@
+package ma.enset.userservice.config;
+
+public final class KafkaTopics {
+    
+    public static final String USER_UPDATED = "user-updated";
+    
+    private KafkaTopics() {
+    }
+}
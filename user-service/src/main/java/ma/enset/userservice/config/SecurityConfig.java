@@ -68,6 +68,7 @@ public class SecurityConfig {
                         // ============================================================
                         .requestMatchers(HttpMethod.GET, "/api/users/*/dto").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/users/username/*/dto").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/users/dto/batch").permitAll()
 
                         // ✅ Permettre aussi l'accès GET par ID pour les services internes
                         .requestMatchers(HttpMethod.GET, "/api/users/*").permitAll()
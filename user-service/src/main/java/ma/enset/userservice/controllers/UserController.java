@@ -210,4 +210,15 @@ public class UserController {
                 .map(user -> ResponseEntity.ok(userMapper.toDTO(user)))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
+
+    /**
+     * Récupérer plusieurs UserDTO en un seul appel (inter-services)
+     * POST /api/users/dto/batch  body: [1, 2, 3]
+     * Les ids inconnus sont simplement absents de la réponse.
+     */
+    @PostMapping("/dto/batch")
+    public ResponseEntity<List<UserDTO>> getUsersDTOByIds(@RequestBody List<Long> ids) {
+        log.debug("📋 Récupération groupée de {} utilisateurs", ids != null ? ids.size() : 0);
+        return ResponseEntity.ok(userService.getUsersDTOByIds(ids));
+    }
 }
\ No newline at end of file
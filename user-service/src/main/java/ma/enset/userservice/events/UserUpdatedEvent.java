@@ -0,0 +1,26 @@
+package ma.enset.userservice.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Émis après chaque modification (ou suppression) d'un utilisateur.
+ * Les autres microservices s'en servent pour invalider leurs caches locaux de UserDTO.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@SuperBuilder
+public class UserUpdatedEvent extends BaseEvent {
+    
+    private Long userId;
+    private String email;
+    private String nom;
+    private String prenom;
+    private String role;
+    private boolean deleted;
+}
@@ -0,0 +1,77 @@
+package ma.enset.userservice.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.userservice.config.KafkaTopics;
+import ma.enset.userservice.entities.User;
+import ma.enset.userservice.events.UserUpdatedEvent;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserEventPublisher {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    /**
+     * Publie un événement de modification d'utilisateur
+     */
+    public void publishUserUpdated(User user) {
+        publishAfterCommit(UserUpdatedEvent.builder()
+                .userId(user.getId())
+                .email(user.getEmail())
+                .nom(user.getNom())
+                .prenom(user.getPrenom())
+                .role(user.getRole() != null ? user.getRole().name() : null)
+                .deleted(false)
+                .build());
+    }
+
+    /**
+     * Publie un événement de suppression d'utilisateur
+     */
+    public void publishUserDeleted(Long userId) {
+        publishAfterCommit(UserUpdatedEvent.builder()
+                .userId(userId)
+                .deleted(true)
+                .build());
+    }
+
+    /**
+     * L'envoi est différé au commit : un consommateur qui invalide son cache
+     * puis relit l'utilisateur doit voir la nouvelle version, pas l'ancienne.
+     * L'envoi se fait sur le thread de la requête : son attente est bornée par
+     * kafka.producer.max-block-ms (broker injoignable → événement perdu, cache expiré au TTL).
+     */
+    private void publishAfterCommit(UserUpdatedEvent event) {
+        event.initializeEvent();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(event);
+                }
+            });
+        } else {
+            send(event);
+        }
+    }
+
+    private void send(UserUpdatedEvent event) {
+        log.info("📤 Publication événement USER_UPDATED - ID: {}, supprimé: {}", event.getUserId(), event.isDeleted());
+        try {
+            kafkaTemplate.send(KafkaTopics.USER_UPDATED, String.valueOf(event.getUserId()), event)
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            log.error("❌ Échec publication USER_UPDATED: {}", ex.getMessage(), ex);
+                        }
+                    });
+        } catch (Exception e) {
+            log.warn("⚠️ Impossible de publier l'événement Kafka: {}", e.getMessage());
+        }
+    }
+}
@@ -4,6 +4,7 @@ import ma.enset.userservice.dto.UserDTO;
 import ma.enset.userservice.entities.User;
 import ma.enset.userservice.enums.Role;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +20,9 @@ public interface UserService {
     Optional<User> getUserByUsername(String username);
     Optional<User> getUserByEmail(String email);
 
+    // Recherche groupée (appels inter-services)
+    List<UserDTO> getUsersDTOByIds(Collection<Long> ids);
+
     // Listes
     List<User> getAllUsers();
     List<User> getUsersByRole(Role role);
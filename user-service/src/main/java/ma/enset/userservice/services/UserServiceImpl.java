@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -25,6 +26,7 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final UserMapper userMapper;
+    private final UserEventPublisher userEventPublisher;
 
     // =============================================================
     // CRUD
@@ -87,7 +89,7 @@ public class UserServiceImpl implements UserService {
             user.setDirecteurId(userDetails.getDirecteurId());
         }
 
-        User savedUser = userRepository.save(user);
+        User savedUser = saveAndPublish(user);
         log.info("✅ Utilisateur {} mis à jour avec succès (publications={}, conferences={}, heures={})",
                 id, savedUser.getNbPublications(), savedUser.getNbConferences(), savedUser.getHeuresFormation());
 
@@ -100,6 +102,7 @@ public class UserServiceImpl implements UserService {
             throw new RuntimeException("Utilisateur non trouvé avec l'ID: " + id);
         }
         userRepository.deleteById(id);
+        userEventPublisher.publishUserDeleted(id);
     }
 
     // =============================================================
@@ -124,6 +127,21 @@ public class UserServiceImpl implements UserService {
         return userRepository.findByEmail(email);
     }
 
+    /**
+     * Récupérer plusieurs utilisateurs en une seule requête (IN) pour les
+     * autres microservices qui enrichissent des listes.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserDTO> getUsersDTOByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        return userRepository.findAllById(ids).stream()
+                .map(userMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
     // =============================================================
     // LISTES
     // =============================================================
@@ -155,7 +173,7 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
         user.setRole(newRole);
-        return userRepository.save(user);
+        return saveAndPublish(user);
     }
 
     // =============================================================
@@ -173,7 +191,7 @@ public class UserServiceImpl implements UserService {
 
         user.setEtat("EN_ATTENTE_DIRECTEUR");
         log.info("✅ Candidature {} validée par admin (sans directeur)", id);
-        return userRepository.save(user);
+        return saveAndPublish(user);
     }
 
     @Override
@@ -196,7 +214,7 @@ public class UserServiceImpl implements UserService {
         user.setDirecteurId(directeurId);
 
         log.info("✅ Candidature {} validée par admin avec directeur {}", id, directeurId);
-        return userRepository.save(user);
+        return saveAndPublish(user);
     }
 
     @Override
@@ -208,7 +226,7 @@ public class UserServiceImpl implements UserService {
         user.setMotifRefus(motif);
 
         log.info("❌ Candidature {} refusée par admin. Motif: {}", id, motif);
-        return userRepository.save(user);
+        return saveAndPublish(user);
     }
 
     // =============================================================
@@ -230,7 +248,7 @@ public class UserServiceImpl implements UserService {
         user.setAnneeThese(1);
 
         log.info("✅ Candidature {} validée par directeur (sans sujet)", id);
-        return userRepository.save(user);
+        return saveAndPublish(user);
     }
 
     @Override
@@ -252,7 +270,7 @@ public class UserServiceImpl implements UserService {
         user.setDateInscription(LocalDateTime.now());
         user.setAnneeThese(1);
 
-        User savedUser = userRepository.save(user);
+        User savedUser = saveAndPublish(user);
 
         log.info("✅ Candidature {} validée par directeur", id);
         log.info("   Doctorant: {} {}", user.getNom(), user.getPrenom());
@@ -274,7 +292,7 @@ public class UserServiceImpl implements UserService {
         user.setMotifRefus(motif);
 
         log.info("❌ Candidature {} refusée par directeur. Motif: {}", id, motif);
-        return userRepository.save(user);
+        return saveAndPublish(user);
     }
 
     // =============================================================
@@ -294,4 +312,13 @@ public class UserServiceImpl implements UserService {
                 .map(userMapper::toDTO)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    /**
+     * Sauvegarde une modification et notifie les autres services (invalidation de cache)
+     */
+    private User saveAndPublish(User user) {
+        User saved = userRepository.save(user);
+        userEventPublisher.publishUserUpdated(saved);
+        return saved;
+    }
+}